@@ -0,0 +1,44 @@
+#!/bin/sh
+# Builds an AppCDS archive of the application from a training run.
+#
+# usage: appcds.sh <repackaged jar> <output directory> [training run arguments...]
+#
+# Class data sharing can't map the classes of the jars nested in the Spring Boot jar, so the application is run from the plain jar Maven
+# leaves next to it (<jar>.original) and the dependencies unpacked from BOOT-INF/lib, in the order of BOOT-INF/classpath.idx. The classpath
+# goes to <output>/classpath.args, and the archive is only used when the JVM is started with that same classpath and is the same build of
+# the JDK that dumped it:
+#
+#   java -XX:SharedArchiveFile=<output>/app.jsa @<output>/classpath.args cloudcode.TopSecretApplication
+#
+# The training run starts the application on a random port, lets it warm up (so the classes of the request paths are loaded too) and exits.
+set -e
+
+if [ $# -lt 2 ]; then
+    echo "usage: $0 <repackaged jar> <output directory> [training run arguments...]" >&2
+    exit 1
+fi
+
+JAR=$(cd "$(dirname "$1")" && pwd)/$(basename "$1")
+mkdir -p "$2"
+OUT=$(cd "$2" && pwd)
+shift 2
+JAVA=${JAVA:-java}
+
+rm -rf "$OUT/lib" "$OUT/unpacked" "$OUT/classes.lst" "$OUT/app.jsa"
+cd "$OUT"
+unzip -q "$JAR" -d unpacked
+mv unpacked/BOOT-INF/lib lib
+cp "$JAR.original" app.jar
+
+CLASSPATH="$OUT/app.jar"
+for dependency in $(sed -n 's|^- "BOOT-INF/lib/\(.*\)"$|\1|p' unpacked/BOOT-INF/classpath.idx); do
+    CLASSPATH="$CLASSPATH:$OUT/lib/$dependency"
+done
+rm -rf unpacked
+echo "-cp $CLASSPATH" > classpath.args
+
+"$JAVA" -Xshare:off -XX:DumpLoadedClassList=classes.lst @classpath.args cloudcode.TopSecretApplication \
+    --server.port=0 --startup.exit=true "$@"
+"$JAVA" -Xshare:dump -Xlog:cds=error -XX:SharedClassListFile=classes.lst -XX:SharedArchiveFile=app.jsa @classpath.args
+
+echo "AppCDS archive of $(wc -l < classes.lst) classes written to $OUT/app.jsa"
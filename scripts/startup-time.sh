@@ -0,0 +1,69 @@
+#!/bin/bash
+# Measures how long the application takes to answer its first request and to report ready.
+#
+# usage: startup-time.sh <runs> <java arguments...>
+#
+#   scripts/startup-time.sh 5 -jar target/mercadolibre-technical-challenge-1.0.0.jar
+#   scripts/startup-time.sh 5 -XX:SharedArchiveFile=target/cds/app.jsa @target/cds/classpath.args cloudcode.TopSecretApplication \
+#       --spring.profiles.active=lean
+#
+# Every run starts a new JVM on $PORT (8090 by default) and times from the launch until a POST /topsecret gets an answer (first response)
+# and until /actuator/health/readiness is UP, i.e. the warm-up finished. The medians of both are printed at the end.
+set -e
+
+if [ $# -lt 2 ]; then
+    echo "usage: $0 <runs> <java arguments...>" >&2
+    exit 1
+fi
+
+RUNS=$1
+shift
+PORT=${PORT:-8090}
+BODY='{"satellites":[{"name":"kenobi","distance":100.0,"message":["este","","","mensaje",""]},
+{"name":"skywalker","distance":115.5,"message":["","es","","","secreto"]},
+{"name":"sato","distance":142.7,"message":["este","","un","",""]}]}'
+
+now(){
+    date +%s%N
+}
+
+median(){
+    sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+FIRST=()
+READY=()
+
+for run in $(seq 1 "$RUNS"); do
+    start=$(now)
+    PORT=$PORT java "$@" > /dev/null 2>&1 &
+    pid=$!
+
+    first=""
+    ready=""
+    while [ -z "$ready" ]; do
+        if ! kill -0 $pid 2> /dev/null; then
+            echo "The application exited during run $run" >&2
+            exit 1
+        fi
+        if [ -z "$first" ]; then
+            status=$(curl -s -o /dev/null -w '%{http_code}' -X POST "localhost:$PORT/topsecret" -H 'Content-Type: application/json' -d "$BODY" || true)
+            if [ "$status" != "000" ]; then
+                first=$(( ($(now) - start) / 1000000 ))
+            fi
+        fi
+        if curl -s "localhost:$PORT/actuator/health/readiness" | grep -q '"UP"'; then
+            ready=$(( ($(now) - start) / 1000000 ))
+            first=${first:-$ready}
+        fi
+        sleep 0.01
+    done
+
+    kill $pid
+    wait $pid 2> /dev/null || true
+    echo "run $run: first response in $first ms, ready in $ready ms"
+    FIRST+=("$first")
+    READY+=("$ready")
+done
+
+echo "median: first response in $(printf '%s\n' "${FIRST[@]}" | median) ms, ready in $(printf '%s\n' "${READY[@]}" | median) ms"
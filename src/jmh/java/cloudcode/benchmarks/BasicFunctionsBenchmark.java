@@ -0,0 +1,56 @@
+package cloudcode.benchmarks;
+
+import cloudcode.BasicFunctions;
+import cloudcode.entities.Constellation;
+import cloudcode.entities.Location;
+import cloudcode.entities.SatelliteMessage;
+import cloudcode.solvers.PartialLocation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//GetLocation for the same valid transmission through each of its entry points: the legacy distances, the entities and a split session's slots
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BasicFunctionsBenchmark {
+
+    private static final double SATO = 100.0 * Math.sqrt((1.0 / 37.0) * (1853.0 - 96.0 * Math.sqrt(3.0)));
+
+    private final Double[] distances = new Double[]{400.0, SATO, 300.0};
+
+    private SatelliteMessage[] satelliteMessages;
+    private PartialLocation partialLocation;
+
+    @Setup
+    public void setup() {
+        satelliteMessages = new SatelliteMessage[]{
+                new SatelliteMessage(new String[]{"", "este", "es", "un", "mensaje"}, 400.0, "kenobi"),
+                new SatelliteMessage(new String[]{"este", "", "un", "mensaje"}, 300.0, "skywalker"),
+                new SatelliteMessage(new String[]{"", "", "es", " ", "mensaje"}, SATO, "sato")};
+
+        partialLocation = new PartialLocation();
+        Constellation constellation = Constellation.current();
+        for(SatelliteMessage satelliteMessage : satelliteMessages){
+            partialLocation.add(constellation, satelliteMessage.getSatelliteId(), satelliteMessage.getDistance());
+        }
+    }
+
+    @Benchmark
+    public Location distances() throws Exception {
+        return BasicFunctions.GetLocation(distances);
+    }
+
+    @Benchmark
+    public Location satelliteMessages() throws Exception {
+        return BasicFunctions.GetLocation(satelliteMessages);
+    }
+
+    @Benchmark
+    public Location partialLocation() throws Exception {
+        return BasicFunctions.GetLocation(partialLocation, satelliteMessages);
+    }
+}
@@ -0,0 +1,81 @@
+package cloudcode.benchmarks;
+
+import cloudcode.solvers.BatchTrilateration;
+import cloudcode.solvers.LocationResult;
+import cloudcode.solvers.TrilaterationSolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+//Whole batches through the struct-of-arrays API, sequentially and split in the fork-join pool, against solving one transmission at a time
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchTrilaterationBenchmark {
+
+    @Param({"1024", "1048576"})
+    private int transmissions;
+
+    private final TrilaterationSolver solver = new TrilaterationSolver(-500.0, -200.0, 500.0, 100.0, 100.0, -100.0);
+    private final ForkJoinPool sequential = new ForkJoinPool(1);
+    private final LocationResult result = new LocationResult();
+
+    private double[] rKenobi;
+    private double[] rSato;
+    private double[] rSkywalker;
+    private double[] outX;
+    private double[] outY;
+    private long[] status;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        rKenobi = new double[transmissions];
+        rSato = new double[transmissions];
+        rSkywalker = new double[transmissions];
+        outX = new double[transmissions];
+        outY = new double[transmissions];
+        status = new long[BatchTrilateration.statusWords(transmissions)];
+
+        for (int i = 0; i < transmissions; i++) {
+            double x = random.nextDouble() * 1000.0 - 500.0;
+            double y = random.nextDouble() * 1000.0 - 500.0;
+            rKenobi[i] = Math.hypot(x + 500.0, y + 200.0);
+            rSato[i] = Math.hypot(x - 500.0, y - 100.0);
+            rSkywalker[i] = Math.hypot(x - 100.0, y + 100.0);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        sequential.shutdown();
+    }
+
+    @Benchmark
+    public long[] batchSequential() {
+        BatchTrilateration.solve(solver, rKenobi, rSato, rSkywalker, outX, outY, status, sequential);
+        return status;
+    }
+
+    @Benchmark
+    public long[] batchForkJoin() {
+        BatchTrilateration.solve(solver, rKenobi, rSato, rSkywalker, outX, outY, status);
+        return status;
+    }
+
+    @Benchmark
+    public double perTransmission() {
+        double sum = 0.0;
+        for (int i = 0; i < transmissions; i++) {
+            if (solver.solve(rKenobi[i], rSato[i], rSkywalker[i], result)) {
+                sum += result.getX();
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,53 @@
+package cloudcode.benchmarks;
+
+import cloudcode.entities.Location;
+import cloudcode.entities.RequestObject;
+import cloudcode.entities.ResponseObject;
+import cloudcode.entities.SatelliteMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+//Jackson binding of the entities through their creators with the controllers' reusable readers, and writing the response back
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EntityBindingBenchmark {
+
+    private static final byte[] SATELLITE_MESSAGE = "{\"name\":\"kenobi\",\"distance\":400.0,\"message\":[\"\",\"este\",\"es\",\"un\",\"mensaje\"]}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] REQUEST_OBJECT = ("{\"satellites\":[" +
+            "{\"name\":\"kenobi\",\"distance\":400.0,\"message\":[\"\",\"este\",\"es\",\"un\",\"mensaje\"]}," +
+            "{\"name\":\"skywalker\",\"distance\":300.0,\"message\":[\"este\",\"\",\"un\",\"mensaje\"]}," +
+            "{\"name\":\"sato\",\"distance\":145.49,\"message\":[\"\",\"\",\"es\",\" \",\"mensaje\"]}]}").getBytes(StandardCharsets.UTF_8);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectReader satelliteMessageReader = objectMapper.readerFor(SatelliteMessage.class);
+    private static final ObjectReader requestObjectReader = objectMapper.readerFor(RequestObject.class);
+    private static final ObjectWriter responseObjectWriter = objectMapper.writerFor(ResponseObject.class);
+
+    private final ResponseObject response = new ResponseObject(new Location(-487.28591250000005, 1557.0142250000004), new String[]{"este", "es", "un", "mensaje"});
+
+    @Benchmark
+    public SatelliteMessage satelliteMessage() throws Exception {
+        return satelliteMessageReader.readValue(SATELLITE_MESSAGE);
+    }
+
+    @Benchmark
+    public RequestObject requestObject() throws Exception {
+        return requestObjectReader.readValue(REQUEST_OBJECT);
+    }
+
+    @Benchmark
+    public byte[] responseObject() throws Exception {
+        return responseObjectWriter.writeValueAsBytes(response);
+    }
+}
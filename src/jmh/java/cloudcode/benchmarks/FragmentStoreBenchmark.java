@@ -0,0 +1,84 @@
+package cloudcode.benchmarks;
+
+import cloudcode.admission.TooManyRequestsResponses;
+import cloudcode.concurrent.HashedWheelTimer;
+import cloudcode.entities.SatelliteMessage;
+import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import cloudcode.store.FragmentStore;
+import cloudcode.store.FragmentStoreServer;
+import cloudcode.store.InMemoryFragmentStore;
+import cloudcode.store.SocketFragmentStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/*Latency of handing a split fragment to the service, with the fragments in the sessions of the instance (local), in an in-process store
+(embedded) and in a store server over a loopback socket (socket). Every third fragment completes its transmission and solves it.*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FragmentStoreBenchmark {
+
+    private static final SatelliteMessage[] FRAGMENTS = {
+            new SatelliteMessage(new String[]{"", "este", "es", "un", "mensaje"}, 400.0, "kenobi"),
+            new SatelliteMessage(new String[]{"este", "", "un", "mensaje"}, 300.0, "skywalker"),
+            new SatelliteMessage(new String[]{"", "", "es", " ", "mensaje"}, 100.0 * Math.sqrt((1.0 / 37.0) * (1853.0 - 96.0 * Math.sqrt(3.0))), "sato")
+    };
+
+    @Param({"local", "embedded", "socket"})
+    private String store;
+
+    private HashedWheelTimer timer;
+    private FragmentStoreServer server;
+    private FragmentStore fragmentStore;
+    private SplitSatelliteMessagesProcessorService service;
+    private long fragments;
+
+    @Setup
+    public void setup() {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        timer = new HashedWheelTimer("benchmark-timer", 100, TimeUnit.MILLISECONDS, 512);
+
+        if("embedded".equals(store)){
+            fragmentStore = new InMemoryFragmentStore(1 << 20);
+        }
+        else if("socket".equals(store)){
+            server = new FragmentStoreServer(new InMemoryFragmentStore(1 << 20), 0).start();
+            fragmentStore = new SocketFragmentStore("localhost", server.getPort());
+        }
+
+        service = new SplitSatelliteMessagesProcessorService(messageSource, new TooManyRequestsResponses("busy"), timer, Optional.ofNullable(fragmentStore), Optional.empty());
+        ReflectionTestUtils.setField(service, "timeout", 30L);
+        ReflectionTestUtils.setField(service, "maxSessions", 1 << 20);
+        ReflectionTestUtils.setField(service, "pollMillis", 100L);
+        ReflectionTestUtils.setField(service, "completionPolicyNames", "");
+        service.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+        if(fragmentStore != null){
+            fragmentStore.close();
+        }
+        if(server != null){
+            server.close();
+        }
+        timer.stop();
+    }
+
+    @Benchmark
+    public CompletableFuture<ResponseEntity> addFragment() {
+        long fragment = fragments++;
+        return service.addSatelliteMessage(Long.toString(fragment / 3), FRAGMENTS[(int) (fragment % 3)]);
+    }
+}
@@ -0,0 +1,63 @@
+package cloudcode.benchmarks;
+
+import cloudcode.entities.SatelliteMessage;
+import cloudcode.store.FragmentWriteAheadLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*Cost of logging a split fragment: append only copies it into the mapped segment (it reaches the disk with the next group commit), sync also
+waits for the flush that covers it. With several threads the syncs share their flushes.*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FragmentWriteAheadLogBenchmark {
+
+    private static final SatelliteMessage FRAGMENT = new SatelliteMessage(new String[]{"", "este", "es", "un", "mensaje"}, 400.0, "kenobi");
+
+    private Path directory;
+    private FragmentWriteAheadLog log;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("wal-benchmark");
+        log = new FragmentWriteAheadLog(directory, 64 << 20, 10, 1000);
+        log.recover();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        log.close();
+        try(Stream<Path> files = Files.walk(directory)){
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long append() {
+        return log.appendAdd("transmission", FRAGMENT);
+    }
+
+    @Benchmark
+    public long sync() {
+        long position = log.appendAdd("transmission", FRAGMENT);
+        log.awaitFlushed(position);
+        return position;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long syncFromFourThreads() {
+        long position = log.appendAdd("transmission", FRAGMENT);
+        log.awaitFlushed(position);
+        return position;
+    }
+}
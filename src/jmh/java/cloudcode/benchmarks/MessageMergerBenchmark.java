@@ -0,0 +1,40 @@
+package cloudcode.benchmarks;
+
+import cloudcode.BasicFunctions;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Merging three fragments of a message of the given amount of words, every satellite lost a different third of them
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageMergerBenchmark {
+
+    @Param({"4", "64", "1024"})
+    private int words;
+
+    private final List<String[]> fragments = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        for(int satellite = 0; satellite < 3; satellite++){
+            String[] fragment = new String[words + satellite];
+            for(int i = 0; i < fragment.length; i++){
+                int word = i - satellite;
+                fragment[i] = word < 0 || word % 3 == satellite ? "" : "word" + (word % 50);
+            }
+            fragments.add(fragment);
+        }
+    }
+
+    @Benchmark
+    public String[] getMessage() throws Exception {
+        return BasicFunctions.GetMessage(fragments);
+    }
+}
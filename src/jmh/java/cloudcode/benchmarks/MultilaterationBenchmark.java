@@ -0,0 +1,49 @@
+package cloudcode.benchmarks;
+
+import cloudcode.solvers.LocationResult;
+import cloudcode.solvers.MultilaterationSolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//Least-squares solve with noisy readings from a growing amount of satellites
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MultilaterationBenchmark {
+
+    @Param({"3", "8", "16", "64"})
+    private int satellites;
+
+    private final MultilaterationSolver solver = new MultilaterationSolver(MultilaterationSolver.DEFAULT_MAX_ITERATIONS, 1.0);
+    private final MultilaterationSolver.Workspace workspace = new MultilaterationSolver.Workspace();
+    private final LocationResult result = new LocationResult();
+
+    private double[] xs;
+    private double[] ys;
+    private double[] radiuses;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        xs = new double[satellites];
+        ys = new double[satellites];
+        radiuses = new double[satellites];
+
+        for (int i = 0; i < satellites; i++) {
+            xs[i] = random.nextDouble() * 2000.0 - 1000.0;
+            ys[i] = random.nextDouble() * 2000.0 - 1000.0;
+            radiuses[i] = Math.hypot(xs[i] + 100.0, ys[i] - 75.0) + random.nextGaussian() * 0.05;
+        }
+    }
+
+    @Benchmark
+    public double solve() {
+        solver.solve(xs, ys, radiuses, satellites, workspace, result);
+        return result.getX() + result.getY();
+    }
+}
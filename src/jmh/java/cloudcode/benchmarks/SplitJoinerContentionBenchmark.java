@@ -0,0 +1,105 @@
+package cloudcode.benchmarks;
+
+import cloudcode.admission.TooManyRequestsResponses;
+import cloudcode.concurrent.HashedWheelTimer;
+import cloudcode.entities.SatelliteMessage;
+import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*addSatelliteMessage on the local sessions with 1 to a thread per core adding fragments at once. With perThread every thread joins its own
+transmissions, so they only meet on the session table and the timer, with shared consecutive fragments go to the same transmission and the
+threads also contend for the session's lock.*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SplitJoinerContentionBenchmark {
+
+    private static final SatelliteMessage[] FRAGMENTS = new SatelliteMessage[]{
+            new SatelliteMessage(new String[]{"", "este", "es", "un", "mensaje"}, 400.0, "kenobi"),
+            new SatelliteMessage(new String[]{"este", "", "un", "mensaje"}, 300.0, "skywalker"),
+            new SatelliteMessage(new String[]{"", "", "es", " ", "mensaje"}, 100.0 * Math.sqrt((1.0 / 37.0) * (1853.0 - 96.0 * Math.sqrt(3.0))), "sato")};
+
+    @Param({"perThread", "shared"})
+    private String transmissions;
+
+    private final AtomicLong sharedFragments = new AtomicLong();
+    private final AtomicLong threads = new AtomicLong();
+
+    private HashedWheelTimer timer;
+    private SplitSatelliteMessagesProcessorService service;
+
+    @State(Scope.Thread)
+    public static class ThreadFragments {
+        private String prefix;
+        private long fragments;
+
+        @Setup
+        public void setup(SplitJoinerContentionBenchmark benchmark) {
+            prefix = benchmark.threads.getAndIncrement() + "-";
+        }
+    }
+
+    @Setup
+    public void setup() {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        timer = new HashedWheelTimer("benchmark-timer", 100, TimeUnit.MILLISECONDS, 512);
+
+        service = new SplitSatelliteMessagesProcessorService(messageSource, new TooManyRequestsResponses("busy"), timer, Optional.empty(), Optional.empty());
+        ReflectionTestUtils.setField(service, "timeout", 30L);
+        ReflectionTestUtils.setField(service, "maxSessions", 1 << 20);
+        ReflectionTestUtils.setField(service, "completionPolicyNames", "");
+        service.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+        timer.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public CompletableFuture<ResponseEntity> oneThread(ThreadFragments threadFragments) {
+        return addFragment(threadFragments);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public CompletableFuture<ResponseEntity> twoThreads(ThreadFragments threadFragments) {
+        return addFragment(threadFragments);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public CompletableFuture<ResponseEntity> fourThreads(ThreadFragments threadFragments) {
+        return addFragment(threadFragments);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public CompletableFuture<ResponseEntity> threadPerCore(ThreadFragments threadFragments) {
+        return addFragment(threadFragments);
+    }
+
+    private CompletableFuture<ResponseEntity> addFragment(ThreadFragments threadFragments) {
+        if("shared".equals(transmissions)){
+            long fragment = sharedFragments.getAndIncrement();
+            return service.addSatelliteMessage(Long.toString(fragment / 3), FRAGMENTS[(int) (fragment % 3)]);
+        }
+
+        long fragment = threadFragments.fragments++;
+        return service.addSatelliteMessage(threadFragments.prefix + fragment / 3, FRAGMENTS[(int) (fragment % 3)]);
+    }
+}
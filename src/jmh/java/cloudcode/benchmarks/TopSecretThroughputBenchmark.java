@@ -0,0 +1,60 @@
+package cloudcode.benchmarks;
+
+import cloudcode.admission.AdmissionGate;
+import cloudcode.admission.TooManyRequestsResponses;
+import cloudcode.controllers.TopSecretController;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*Requests per second through the /topsecret controller with one thread and with as many threads as cores. serialized runs the same requests
+holding a shared monitor, as the controller did before, so it shows what the lock cost once there's more than one core.*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TopSecretThroughputBenchmark {
+
+    private static final byte[] PAYLOAD = ("{\"satellites\":[" +
+            "{\"name\":\"kenobi\",\"distance\":400.0,\"message\":[\"\",\"este\",\"es\",\"un\",\"mensaje\"]}," +
+            "{\"name\":\"skywalker\",\"distance\":300.0,\"message\":[\"este\",\"\",\"un\",\"mensaje\"]}," +
+            "{\"name\":\"sato\",\"distance\":" + (100.0 * Math.sqrt((1.0 / 37.0) * (1853.0 - 96.0 * Math.sqrt(3.0)))) +
+            ",\"message\":[\"\",\"\",\"es\",\" \",\"mensaje\"]}]}").getBytes(StandardCharsets.UTF_8);
+
+    private final Object lock = new Object();
+    private TopSecretController controller;
+
+    @Setup
+    public void setup() {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        //The gate's limits are disabled, so it measures what admitting a request costs and not the shedding
+        controller = new TopSecretController(null, messageSource, new AdmissionGate("topsecret", 0, 0, 1000, new TooManyRequestsResponses("")));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ResponseEntity singleThread() {
+        return controller.topSecretPOST(new ByteArrayInputStream(PAYLOAD));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ResponseEntity allThreads() {
+        return controller.topSecretPOST(new ByteArrayInputStream(PAYLOAD));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ResponseEntity serialized() {
+        synchronized (lock){
+            return controller.topSecretPOST(new ByteArrayInputStream(PAYLOAD));
+        }
+    }
+}
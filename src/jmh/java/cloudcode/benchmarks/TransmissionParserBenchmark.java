@@ -0,0 +1,55 @@
+package cloudcode.benchmarks;
+
+import cloudcode.entities.RequestObject;
+import cloudcode.entities.SatelliteMessage;
+import cloudcode.parsers.Transmission;
+import cloudcode.parsers.TransmissionParser;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+//Reading a /topsecret payload: binding it to a map and converting it to the entities against the single pass token reader
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransmissionParserBenchmark {
+
+    private static final byte[] PAYLOAD = ("{\"satellites\":[" +
+            "{\"name\":\"kenobi\",\"distance\":400.0,\"message\":[\"\",\"este\",\"es\",\"un\",\"mensaje\"]}," +
+            "{\"name\":\"skywalker\",\"distance\":300.0,\"message\":[\"este\",\"\",\"un\",\"mensaje\"]}," +
+            "{\"name\":\"sato\",\"distance\":145.49,\"message\":[\"\",\"\",\"es\",\" \",\"mensaje\"]}]}").getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TransmissionParser transmissionParser = new TransmissionParser();
+    private final Transmission transmission = new Transmission();
+
+    @Benchmark
+    public Object mapBinding() throws Exception {
+        RequestObject result = objectMapper.convertValue(objectMapper.readValue(PAYLOAD, Map.class), RequestObject.class);
+
+        List<String[]> messages = Arrays.stream(result.getSatelliteMessages()).map(SatelliteMessage::getMessage).collect(Collectors.toList());
+        Double[] distances = Arrays.stream(result.getSatelliteMessages()).sorted(Comparator.comparing(SatelliteMessage::getName))
+                .map(SatelliteMessage::getDistance).toArray(Double[]::new);
+
+        return distances[0] + messages.size();
+    }
+
+    @Benchmark
+    public Object streaming() throws Exception {
+        try(JsonParser parser = objectMapper.getFactory().createParser(PAYLOAD)){
+            Transmission result = transmissionParser.parse(parser, transmission);
+            return result.getDistances()[0] + result.getMessages().size();
+        }
+    }
+}
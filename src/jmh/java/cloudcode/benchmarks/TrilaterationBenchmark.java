@@ -0,0 +1,43 @@
+package cloudcode.benchmarks;
+
+import cloudcode.solvers.LocationResult;
+import cloudcode.solvers.TrilaterationSolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//Linear closed form against intersecting the circles by pairs, for the same valid transmission
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrilaterationBenchmark {
+
+    private final TrilaterationSolver solver = new TrilaterationSolver(-500.0, -200.0, 500.0, 100.0, 100.0, -100.0);
+    private final LocationResult result = new LocationResult();
+
+    private double rKenobi;
+    private double rSato;
+    private double rSkywalker;
+
+    @Setup
+    public void setup() {
+        rKenobi = 400.0;
+        rSato = 100.0 * Math.sqrt((1.0 / 37.0) * (1853.0 - 96.0 * Math.sqrt(3.0)));
+        rSkywalker = 300.0;
+    }
+
+    @Benchmark
+    public double linear() {
+        solver.solve(rKenobi, rSato, rSkywalker, result);
+        return result.getX() + result.getY();
+    }
+
+    @Benchmark
+    public double pairwise() {
+        solver.solvePairwise(rKenobi, rSato, rSkywalker, result);
+        return result.getX() + result.getY();
+    }
+}
@@ -1,53 +1,167 @@
 package cloudcode;
 
 import cloudcode.entities.Location;
-import cloudcode.entities.SatelliteConstants;
+import cloudcode.entities.Constellation;
+import cloudcode.entities.SatelliteMessage;
 import cloudcode.exceptions.LocationProcessingException;
 import cloudcode.exceptions.MessageProcessingException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import cloudcode.logging.EventCategory;
+import cloudcode.logging.EventLog;
+import cloudcode.metrics.HotPathMetrics;
+import cloudcode.solvers.BatchTrilateration;
+import cloudcode.solvers.LocationResult;
+import cloudcode.solvers.MessageMerger;
+import cloudcode.solvers.MultilaterationSolver;
+import cloudcode.solvers.PartialLocation;
+import cloudcode.solvers.TrilaterationSolver;
 
 import java.util.*;
-import java.util.stream.IntStream;
 
 public class BasicFunctions {
 
-    private static final Logger logger = LoggerFactory.getLogger(BasicFunctions.class);
-    private static final double EPSILON = 0.000001;
+    //Sampled, see EventLog
+    private static final EventCategory solverEvents = EventLog.category("solver");
 
+    private static final ThreadLocal<MultilaterationSolver.Workspace> multilaterationWorkspace = ThreadLocal.withInitial(MultilaterationSolver.Workspace::new);
+    private static final ThreadLocal<MessageMerger> messageMerger = ThreadLocal.withInitial(MessageMerger::new);
+
+    //Works with any amount of fragments, see MessageMerger for how they're aligned and merged
     public static String[] GetMessage(List<String[]> messages) throws MessageProcessingException {
+        long start = System.nanoTime();
+        try {
+            String[] message = messageMerger.get().merge(messages);
+
+            if(message.length == 0){
+                throw new MessageProcessingException("");
+            }
+
+            return message;
+        }
+        finally {
+            HotPathMetrics.recordMessage(System.nanoTime() - start);
+        }
+    }
+
+    //The public GetLocation functions are timed, the ones they delegate to aren't so a location is only recorded once
+
+    public static Location GetLocation(Double[] distances) throws LocationProcessingException {
+        return timed(() -> locate(distances));
+    }
 
-        //Getting the message lenght, we ignore safety checks since we've previously validated the data
-        Integer maxLenght = messages.stream().map(strings -> IntStream.range(0, strings.length - 1).map(i -> strings.length - 1 - i)
-                            .filter(i -> !strings[i].trim().isEmpty()).findFirst().orElse(-1)).max(Integer::compare).get();
+    public static Location GetLocation(SatelliteMessage[] satelliteMessages) throws LocationProcessingException {
+        return timed(() -> locate(satelliteMessages));
+    }
 
-        List<String> message = new ArrayList<String>();
-        for(int i = maxLenght - 1; i >= 0; i--){
-            Set<String> temp = new HashSet<String>();
-            temp.add(messages.get(0)[messages.get(0).length - 1 - i].trim());
-            temp.add(messages.get(1)[messages.get(1).length - 1 - i].trim());
-            temp.add(messages.get(2)[messages.get(2).length - 1 - i].trim());
+    public static Location GetLocation(PartialLocation partialLocation, SatelliteMessage[] satelliteMessages) throws LocationProcessingException {
+        return timed(() -> locate(partialLocation, satelliteMessages));
+    }
 
-            //Two or more different messages in the same position, we add a blank space
-            if (temp.size() == 3){
-                message.add("");
+    public static Location GetLocation(Constellation constellation, int[] satelliteIds, double[] distances, int count) throws LocationProcessingException {
+        return timed(() -> locate(constellation, satelliteIds, distances, count));
+    }
+
+    public static Location GetLocation(Location[] satelliteLocations, Double[] distances) throws LocationProcessingException {
+        return timed(() -> locate(Constellation.current().getMultilaterationSolver(), satelliteLocations, distances));
+    }
+
+    @FunctionalInterface
+    private interface LocationSupplier {
+        Location get() throws LocationProcessingException;
+    }
+
+    //The lambdas are inlined along with timed, so escape analysis leaves nothing allocated per call
+    private static Location timed(LocationSupplier locate) throws LocationProcessingException {
+        long start = System.nanoTime();
+        try {
+            return locate.get();
+        }
+        finally {
+            HotPathMetrics.recordLocation(System.nanoTime() - start);
+        }
+    }
+
+    private static Location locate(Double[] distances) throws LocationProcessingException {
+
+        Location position = calculateThreeCircleIntersection(Constellation.current().getTrilaterationSolver(), distances[0], distances[1], distances[2]);
+
+        if (position == null) {
+            throw new LocationProcessingException("");
+        }
+
+        return position;
+    }
+
+    /*Location from the readings of the given satellites in any order. Three readings of a three satellite constellation go through the precomputed
+    trilateration, anything else (or messages validated against a constellation that has been reloaded since) is solved by least squares.*/
+    private static Location locate(SatelliteMessage[] satelliteMessages) throws LocationProcessingException {
+        Constellation constellation = Constellation.current();
+
+        if (satelliteMessages.length == 3 && constellation.size() == 3 && satelliteMessages[0].getConstellation() == constellation
+                && satelliteMessages[1].getConstellation() == constellation && satelliteMessages[2].getConstellation() == constellation) {
+            double[] distances = new double[3];
+            for (SatelliteMessage satelliteMessage : satelliteMessages) {
+                distances[satelliteMessage.getSatelliteId()] = satelliteMessage.getDistance();
             }
-            else{
-                temp.remove("");
-                message.add(temp.iterator().next());
+
+            Location position = calculateThreeCircleIntersection(constellation.getTrilaterationSolver(), distances[0], distances[1], distances[2]);
+
+            if (position == null) {
+                throw new LocationProcessingException("");
             }
+
+            return position;
         }
 
-        if(message.size() == 0){
-            throw new MessageProcessingException("");
+        Location[] satelliteLocations = new Location[satelliteMessages.length];
+        Double[] distances = new Double[satelliteMessages.length];
+        for (int i = 0; i < satelliteMessages.length; i++) {
+            satelliteLocations[i] = satelliteMessages[i].getSatelliteLocation();
+            distances[i] = satelliteMessages[i].getDistance();
         }
 
-        return Arrays.copyOf(message.toArray(), message.toArray().length, String[].class);
+        return locate(constellation.getMultilaterationSolver(), satelliteLocations, distances);
     }
 
-    public static Location GetLocation(Double[] distances) throws LocationProcessingException {
+    /*Location of a split transmission whose readings were slotted by satellite as they arrived, so a complete three satellite transmission
+    only evaluates the closed form. Anything else (or a constellation reloaded in the meantime) is solved as GetLocation(SatelliteMessage[]) does.*/
+    private static Location locate(PartialLocation partialLocation, SatelliteMessage[] satelliteMessages) throws LocationProcessingException {
+        Constellation constellation = partialLocation.getConstellation();
+
+        if (satelliteMessages.length == 3 && partialLocation.isComplete() && constellation == Constellation.current()) {
+            Location position = calculateThreeCircleIntersection(constellation.getTrilaterationSolver(), partialLocation.getDistance(0), partialLocation.getDistance(1), partialLocation.getDistance(2));
+
+            if (position == null) {
+                throw new LocationProcessingException("");
+            }
+
+            return position;
+        }
+
+        return locate(satelliteMessages);
+    }
 
-        Location position = calculateThreeCircleIntersection(distances[0], distances[1], distances[2]);
+    /*Location from the readings of the given satellites of the constellation, the distances are indexed by satellite ID. Same as
+    GetLocation(SatelliteMessage[]) but for callers that keep the readings in primitive slots.*/
+    private static Location locate(Constellation constellation, int[] satelliteIds, double[] distances, int count) throws LocationProcessingException {
+        Location position;
+
+        if (count == 3 && constellation.size() == 3) {
+            position = calculateThreeCircleIntersection(constellation.getTrilaterationSolver(), distances[0], distances[1], distances[2]);
+        }
+        else {
+            double[] xs = new double[count];
+            double[] ys = new double[count];
+            double[] radiuses = new double[count];
+
+            for (int i = 0; i < count; i++) {
+                xs[i] = constellation.getX(satelliteIds[i]);
+                ys[i] = constellation.getY(satelliteIds[i]);
+                radiuses[i] = distances[satelliteIds[i]];
+            }
+
+            LocationResult result = new LocationResult();
+            position = constellation.getMultilaterationSolver().solve(xs, ys, radiuses, count, multilaterationWorkspace.get(), result) ? new Location(result.getX(), result.getY()) : null;
+        }
 
         if (position == null) {
             throw new LocationProcessingException("");
@@ -56,87 +170,72 @@ public class BasicFunctions {
         return position;
     }
 
-    //Do not change the parameter positions unless you prove mathematically that doing so does not change the result. The array in the caller function requires this order.
-    private static Location calculateThreeCircleIntersection(double rKenobi, double rSato, double rSkywalker) {
-        double xKenobi = SatelliteConstants.location.KENOBI.getLocation().getX();
-        double yKenobi = SatelliteConstants.location.KENOBI.getLocation().getY();
-        double xSato = SatelliteConstants.location.SATO.getLocation().getX();
-        double ySato = SatelliteConstants.location.SATO.getLocation().getY();
-        double xSkywalker = SatelliteConstants.location.SKYWALKER.getLocation().getX();
-        double ySkywalker = SatelliteConstants.location.SKYWALKER.getLocation().getY();
-
-        double a, dx, dy, d, h, rx, ry;
-        double point2_x, point2_y;
-
-        /* dx and dy are the vertical and horizontal distances between
-         * the circle centers.
-         */
-        dx = xSato - xKenobi;
-        dy = ySato - yKenobi;
-
-        /* Determine the straight-line distance between the centers. */
-        d = Math.sqrt((dy * dy) + (dx * dx));
-
-        /* Check for solvability. */
-        if (d > (rKenobi + rSato)) {
-            /* no solution. circles do not intersect. */
-            return null;
+    //Least-squares location from 3 or more satellites, each distance must be in the same position as its satellite's location
+    private static Location locate(MultilaterationSolver multilaterationSolver, Location[] satelliteLocations, Double[] distances) throws LocationProcessingException {
+        int count = satelliteLocations.length;
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        double[] radiuses = new double[count];
+
+        for (int i = 0; i < count; i++) {
+            xs[i] = satelliteLocations[i].getX();
+            ys[i] = satelliteLocations[i].getY();
+            radiuses[i] = distances[i];
         }
-        if (d < Math.abs(rKenobi - rSato)) {
-            /* no solution. one circle is contained in the other */
-            return null;
+
+        LocationResult result = new LocationResult();
+        if (!multilaterationSolver.solve(xs, ys, radiuses, count, multilaterationWorkspace.get(), result)) {
+            throw new LocationProcessingException("");
+        }
+
+        return new Location(result.getX(), result.getY());
+    }
+
+    /*Least-squares estimate from the readings received so far, whether or not it's within the solver's tolerance: the result keeps the best
+    position and its residual so the caller can decide. Returns false if there're less than 3 readings.*/
+    public static boolean EstimateLocation(SatelliteMessage[] satelliteMessages, LocationResult result) {
+        int count = satelliteMessages.length;
+        if (count < 3) {
+            return false;
         }
 
-        /* 'point 2' is the point where the line through the circle
-         * intersection points crosses the line between the circle
-         * centers.
-         */
-
-        /* Determine the distance from point 0 to point 2. */
-        a = ((rKenobi * rKenobi) - (rSato * rSato) + (d * d)) / (2.0 * d);
-
-        /* Determine the coordinates of point 2. */
-        point2_x = xKenobi + (dx * a / d);
-        point2_y = yKenobi + (dy * a / d);
-
-        /* Determine the distance from point 2 to either of the
-         * intersection points.
-         */
-        h = Math.sqrt((rKenobi * rKenobi) - (a * a));
-
-        /* Now determine the offsets of the intersection points from
-         * point 2.
-         */
-        rx = -dy * (h / d);
-        ry = dx * (h / d);
-
-        /* Determine the absolute intersection points. */
-        double intersectionPoint1_x = point2_x + rx;
-        double intersectionPoint2_x = point2_x - rx;
-        double intersectionPoint1_y = point2_y + ry;
-        double intersectionPoint2_y = point2_y - ry;
-
-        logger.info("INTERSECTION Circle1 AND Circle2: " + "(" + intersectionPoint1_x + "," + intersectionPoint1_y + ")" + " AND (" + intersectionPoint2_x + "," + intersectionPoint2_y + ")");
-
-        /* Lets determine if circle 3 intersects at either of the above intersection points. */
-        dx = intersectionPoint1_x - xSkywalker;
-        dy = intersectionPoint1_y - ySkywalker;
-        double d1 = Math.sqrt((dy * dy) + (dx * dx));
-
-        dx = intersectionPoint2_x - xSkywalker;
-        dy = intersectionPoint2_y - ySkywalker;
-        double d2 = Math.sqrt((dy * dy) + (dx * dx));
-
-        if (Math.abs(d1 - rSkywalker) < EPSILON) {
-            return new Location(intersectionPoint1_x, intersectionPoint1_y);
-//            logger.info("INTERSECTION Circle1 AND Circle2 AND Circle3:", "(" + intersectionPoint1_x + "," + intersectionPoint1_y + ")");
-        } else if (Math.abs(d2 - rSkywalker) < EPSILON) {
-            return new Location(intersectionPoint2_x, intersectionPoint2_y);
-//            logger.info("INTERSECTION Circle1 AND Circle2 AND Circle3:", "(" + intersectionPoint2_x + "," + intersectionPoint2_y + ")"); //here was an error
-        } else {
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        double[] radiuses = new double[count];
+
+        for (int i = 0; i < count; i++) {
+            xs[i] = satelliteMessages[i].getSatelliteLocation().getX();
+            ys[i] = satelliteMessages[i].getSatelliteLocation().getY();
+            radiuses[i] = satelliteMessages[i].getDistance();
+        }
+
+        satelliteMessages[0].getConstellation().getMultilaterationSolver().solve(xs, ys, radiuses, count, multilaterationWorkspace.get(), result);
+        return true;
+    }
+
+    //Batch version of GetLocation for offline jobs, see BatchTrilateration for the layout of the arrays
+    public static void GetLocations(double[] rKenobi, double[] rSato, double[] rSkywalker, double[] outX, double[] outY, long[] status) {
+        BatchTrilateration.solve(Constellation.current().getTrilaterationSolver(), rKenobi, rSato, rSkywalker, outX, outY, status);
+    }
+
+    //Do not change the parameter positions unless you prove mathematically that doing so does not change the result. The array in the caller function requires this order.
+    private static Location calculateThreeCircleIntersection(TrilaterationSolver trilaterationSolver, double rKenobi, double rSato, double rSkywalker) {
+        LocationResult result = new LocationResult();
+
+        //The linear solution is tried first, the solver falls back to intersecting the circles by pairs when the constellation is ill-conditioned
+        if (!trilaterationSolver.solve(rKenobi, rSato, rSkywalker, result)) {
+            if (result.hasCandidates() && solverEvents.isSampled()) {
+                solverEvents.log("INTERSECTION Circle1 AND Circle2: ({},{}) AND ({},{})", "x1", result.getCandidate1X(), "y1", result.getCandidate1Y(),
+                                 "x2", result.getCandidate2X(), "y2", result.getCandidate2Y());
+            }
             return null;
-//            logger.info("INTERSECTION Circle1 AND Circle2 AND Circle3:", "NONE");
         }
+
+        if (solverEvents.isSampled()) {
+            solverEvents.log("INTERSECTION Circle1 AND Circle2 AND Circle3: ({},{})", "x", result.getX(), "y", result.getY());
+        }
+
+        return new Location(result.getX(), result.getY());
     }
 
-}
\ No newline at end of file
+}
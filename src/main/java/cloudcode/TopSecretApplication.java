@@ -1,22 +1,31 @@
 package cloudcode;
 
+import cloudcode.concurrent.HashedWheelTimer;
+import cloudcode.logging.EventLog;
+import cloudcode.services.ConstellationRegistry;
+import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import cloudcode.store.FragmentStoreServer;
+import cloudcode.store.FragmentWriteAheadLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.support.ResourceBundleMessageSource;
-import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.Collections;
 import java.util.Locale;
-import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /** This class serves as an entry point for the Spring Boot app. */
 @SpringBootApplication
-@EnableAsync
 public class TopSecretApplication {
 
   private static final Logger logger = LoggerFactory.getLogger(TopSecretApplication.class);
@@ -31,9 +40,22 @@ public class TopSecretApplication {
     app.setDefaultProperties(Collections.singletonMap("server.port", port));
 
     // Start the Spring Boot application.
-    app.run(args);
+    ConfigurableApplicationContext context = app.run(args);
     logger.info(
         "Hello from Cloud Run! The container started successfully and is listening for HTTP requests on $PORT");
+
+    // The training run of the class data sharing archive only has to start and warm up, see scripts/appcds.sh
+    if (context.getEnvironment().getProperty("startup.exit", Boolean.class, false)) {
+      System.exit(SpringApplication.exit(context));
+    }
+  }
+
+  /* With spring.main.lazy-initialization (the lean profile) these still have to be created on startup: they recover the write-ahead log,
+  load the constellation, serve a store node or bind the meters before the first request is timed. */
+  @Bean
+  public static LazyInitializationExcludeFilter eagerBeans() {
+    return LazyInitializationExcludeFilter.forBeanTypes(ConstellationRegistry.class, SplitSatelliteMessagesProcessorService.class,
+                                                        FragmentStoreServer.class, FragmentWriteAheadLog.class, MeterRegistry.class, MeterBinder.class);
   }
 
   @Bean
@@ -44,15 +66,16 @@ public class TopSecretApplication {
     return messageSource;
   }
 
-  @Bean
-  public Executor taskExecutor() {
-    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-    executor.setCorePoolSize(1);
-    executor.setMaxPoolSize(1);
-    executor.setQueueCapacity(0);
-    executor.setThreadNamePrefix("SplitJoiner-");
-    executor.initialize();
-    return executor;
+  @Autowired
+  public void configureEvents(@Value("${events.sampling}") String sampling) {
+    EventLog.configure(sampling);
+  }
+
+  //Split sessions expire in a timer wheel, so pending transmissions don't hold any thread while they wait for their fragments
+  @Bean(destroyMethod = "stop")
+  public HashedWheelTimer splitSessionTimer(@Value("${splitSatelliteMessage.timer.tickMillis}") long tickMillis,
+                                            @Value("${splitSatelliteMessage.timer.ticksPerWheel}") int ticksPerWheel) {
+    return new HashedWheelTimer("SplitJoiner-timer", tickMillis, TimeUnit.MILLISECONDS, ticksPerWheel);
   }
 
 }
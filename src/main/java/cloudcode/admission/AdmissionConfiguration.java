@@ -0,0 +1,37 @@
+package cloudcode.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Locale;
+
+/*A gate for each endpoint that does work per request: /topsecret_split around adding a fragment to its session (the bulkhead isn't held while
+the request waits for the rest of the fragments, that's what the pending session budget splitSatelliteMessage.maxSessions bounds) and
+/topsecret around solving the transmission.*/
+@Configuration
+public class AdmissionConfiguration {
+
+  @Bean
+  public TooManyRequestsResponses tooManyRequestsResponses(MessageSource messageSource) {
+    return new TooManyRequestsResponses(messageSource.getMessage("EXCESSIVE_MESSAGES_TRY_AGAIN_LATER", null, Locale.US));
+  }
+
+  @Bean
+  public AdmissionGate splitAdmissionGate(@Value("${admission.split.maxConcurrentCalls}") int maxConcurrentCalls,
+                                          @Value("${admission.split.limitForPeriod}") int limitForPeriod,
+                                          @Value("${admission.limitRefreshPeriodMillis}") long limitRefreshPeriodMillis,
+                                          TooManyRequestsResponses tooManyRequestsResponses) {
+    return new AdmissionGate("split", maxConcurrentCalls, limitForPeriod, limitRefreshPeriodMillis, tooManyRequestsResponses);
+  }
+
+  @Bean
+  public AdmissionGate topSecretAdmissionGate(@Value("${admission.topsecret.maxConcurrentCalls}") int maxConcurrentCalls,
+                                              @Value("${admission.topsecret.limitForPeriod}") int limitForPeriod,
+                                              @Value("${admission.limitRefreshPeriodMillis}") long limitRefreshPeriodMillis,
+                                              TooManyRequestsResponses tooManyRequestsResponses) {
+    return new AdmissionGate("topsecret", maxConcurrentCalls, limitForPeriod, limitRefreshPeriodMillis, tooManyRequestsResponses);
+  }
+
+}
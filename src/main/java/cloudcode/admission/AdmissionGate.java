@@ -0,0 +1,86 @@
+package cloudcode.admission;
+
+import cloudcode.entities.AdmissionMetrics;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.ratelimiter.RateLimiter;
+import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/*Admission control of an endpoint: a rate limiter for the calls per refresh period and a bulkhead for the calls in flight. Neither of them
+waits for a permission, a request that doesn't get one is shed right away with a 429 whose Retry-After is the rate limiter's refresh period
+(by then it has refilled), or a second when it's the bulkhead that's full (calls only hold it for a few milliseconds). A limit of 0 disables it.*/
+public final class AdmissionGate {
+
+    private final String name;
+    private final RateLimiter rateLimiter;
+    private final long rateLimiterRetryAfterMillis;
+    private final Bulkhead bulkhead;
+    private final int maxConcurrentCalls;
+    private final TooManyRequestsResponses tooManyRequestsResponses;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder bulkheadFull = new LongAdder();
+
+    public AdmissionGate(String name, int maxConcurrentCalls, int limitForPeriod, long limitRefreshPeriodMillis, TooManyRequestsResponses tooManyRequestsResponses){
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.tooManyRequestsResponses = tooManyRequestsResponses;
+
+        this.rateLimiter = limitForPeriod <= 0 ? null : RateLimiter.of(name, RateLimiterConfig.custom()
+                .limitForPeriod(limitForPeriod)
+                .limitRefreshPeriod(Duration.ofMillis(limitRefreshPeriodMillis))
+                .timeoutDuration(Duration.ZERO)
+                .build());
+        this.rateLimiterRetryAfterMillis = rateLimiter == null ? 0L : rateLimiter.getRateLimiterConfig().getLimitRefreshPeriod().toMillis();
+
+        this.bulkhead = maxConcurrentCalls <= 0 ? null : Bulkhead.of(name, BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+    }
+
+    //Returns null if the request is admitted, in which case release() must be called once it's done, or the 429 to answer otherwise
+    public ResponseEntity<String> tryAdmit(){
+        if(rateLimiter != null && !rateLimiter.acquirePermission()){
+            rateLimited.increment();
+            return tooManyRequestsResponses.retryAfterMillis(rateLimiterRetryAfterMillis);
+        }
+
+        if(bulkhead != null && !bulkhead.tryAcquirePermission()){
+            bulkheadFull.increment();
+            return tooManyRequestsResponses.retryAfterMillis(0L);
+        }
+
+        admitted.increment();
+        return null;
+    }
+
+    public void release(){
+        if(bulkhead != null){
+            bulkhead.onComplete();
+        }
+    }
+
+    //Forgets the requests counted so far, the rate limiter and the bulkhead keep their permissions
+    public void resetMetrics(){
+        admitted.reset();
+        rateLimited.reset();
+        bulkheadFull.reset();
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public AdmissionMetrics getMetrics(){
+        int inFlight = bulkhead == null ? 0 : maxConcurrentCalls - bulkhead.getMetrics().getAvailableConcurrentCalls();
+        int availablePermissions = rateLimiter == null ? -1 : Math.max(rateLimiter.getMetrics().getAvailablePermissions(), 0);
+
+        return new AdmissionMetrics(name, admitted.sum(), rateLimited.sum(), bulkheadFull.sum(), inFlight, maxConcurrentCalls, availablePermissions);
+    }
+}
@@ -0,0 +1,30 @@
+package cloudcode.admission;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/*429 responses telling the client when to try again, so it backs off instead of retrying right away as it does with a 400. Retry-After is in
+whole seconds (at least 1), and the responses up to MAX_SECONDS are built once and shared like the rest of the error responses.*/
+public final class TooManyRequestsResponses {
+
+    public static final int MAX_SECONDS = 120;
+
+    private final ResponseEntity<String>[] responses;
+
+    @SuppressWarnings("unchecked")
+    public TooManyRequestsResponses(String body){
+        this.responses = new ResponseEntity[MAX_SECONDS + 1];
+        for(int seconds = 1; seconds <= MAX_SECONDS; seconds++){
+            responses[seconds] = ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, Integer.toString(seconds)).body(body);
+        }
+    }
+
+    //Rounded up to the next second and clamped to [1, MAX_SECONDS]
+    public ResponseEntity<String> retryAfterMillis(long millis){
+        long seconds = (Math.max(millis, 0L) + TimeUnit.SECONDS.toMillis(1) - 1) / TimeUnit.SECONDS.toMillis(1);
+        return responses[(int) Math.min(Math.max(seconds, 1L), MAX_SECONDS)];
+    }
+}
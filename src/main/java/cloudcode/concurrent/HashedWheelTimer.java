@@ -0,0 +1,258 @@
+package cloudcode.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*Timer that schedules and cancels timeouts in O(1) by hashing their deadline into the buckets of a wheel that a single worker thread
+advances once per tick. Expired tasks run on the worker thread, so they must be short and never block.*/
+public class HashedWheelTimer {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long tickDuration;
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean stopped;
+    private long tick;
+
+    public HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int ticksPerWheel){
+        if(tickDuration <= 0 || ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)){
+            throw new IllegalArgumentException("Invalid timer wheel configuration");
+        }
+
+        //Rounding the wheel up to a power of two so the bucket index is a mask instead of a modulo
+        int normalizedTicksPerWheel = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        if(normalizedTicksPerWheel == 0){
+            normalizedTicksPerWheel = 1;
+        }
+
+        this.wheel = new Bucket[normalizedTicksPerWheel];
+        for(int i = 0; i < wheel.length; i++){
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.tickDuration = unit.toNanos(tickDuration);
+        this.startTime = System.nanoTime();
+
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit){
+        if(stopped){
+            throw new IllegalStateException("The timer has been stopped");
+        }
+
+        Timeout timeout = new Timeout(this, task, System.nanoTime() - startTime + unit.toNanos(delay));
+        pendingCount.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    //Timeouts that were scheduled and haven't expired or been cancelled yet
+    public long getPendingTimeouts(){
+        return pendingCount.get();
+    }
+
+    public void stop(){
+        stopped = true;
+        worker.interrupt();
+    }
+
+    private void run(){
+        while(!stopped){
+            long deadline = waitForNextTick();
+            if(deadline < 0){
+                continue;
+            }
+
+            removeCancelledTimeouts();
+            transferPendingTimeouts();
+            wheel[(int) (tick & mask)].expireTimeouts(deadline);
+            tick++;
+        }
+    }
+
+    //Sleeps until the end of the current tick and returns the elapsed time from the start of the timer, or -1 if interrupted
+    private long waitForNextTick(){
+        long deadline = tickDuration * (tick + 1);
+
+        while(true){
+            long currentTime = System.nanoTime() - startTime;
+            long sleepTimeMillis = (deadline - currentTime + 999999) / 1000000;
+
+            if(sleepTimeMillis <= 0){
+                return currentTime;
+            }
+
+            try{
+                Thread.sleep(sleepTimeMillis);
+            }
+            catch (InterruptedException e){
+                if(stopped){
+                    return -1;
+                }
+            }
+        }
+    }
+
+    private void transferPendingTimeouts(){
+        //Bounding the transfer so that a flood of new timeouts can't stall the wheel
+        for(int i = 0; i < 100000; i++){
+            Timeout timeout = pendingTimeouts.poll();
+            if(timeout == null){
+                return;
+            }
+            if(timeout.state.get() == STATE_CANCELLED){
+                continue;
+            }
+
+            long calculated = timeout.deadline / tickDuration;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+
+            //If the deadline is already in the past we expire it in the current tick
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelledTimeouts(){
+        Timeout timeout;
+        while((timeout = cancelledTimeouts.poll()) != null){
+            if(timeout.bucket != null){
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    public static final class Timeout {
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+        //Only touched by the worker thread
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline){
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        //Returns false if the task already ran or the timeout was already cancelled
+        public boolean cancel(){
+            if(!state.compareAndSet(STATE_INIT, STATE_CANCELLED)){
+                return false;
+            }
+            timer.pendingCount.decrementAndGet();
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled(){
+            return state.get() == STATE_CANCELLED;
+        }
+
+        public boolean isExpired(){
+            return state.get() == STATE_EXPIRED;
+        }
+
+        private void expire(){
+            if(!state.compareAndSet(STATE_INIT, STATE_EXPIRED)){
+                return;
+            }
+            timer.pendingCount.decrementAndGet();
+
+            try{
+                task.run();
+            }
+            catch (Throwable t){
+                logger.warn("A timer task threw an exception", t);
+            }
+        }
+    }
+
+    //Doubly linked list of timeouts, only touched by the worker thread
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout){
+            timeout.bucket = this;
+            if(head == null){
+                head = tail = timeout;
+            }
+            else{
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void expireTimeouts(long deadline){
+            Timeout timeout = head;
+
+            while(timeout != null){
+                Timeout next = timeout.next;
+
+                if(timeout.remainingRounds <= 0 && timeout.deadline <= deadline){
+                    remove(timeout);
+                    timeout.expire();
+                }
+                else if(timeout.isCancelled()){
+                    remove(timeout);
+                }
+                else if(timeout.remainingRounds > 0){
+                    timeout.remainingRounds--;
+                }
+
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout){
+            if(timeout.bucket != this){
+                return;
+            }
+
+            if(timeout.prev != null){
+                timeout.prev.next = timeout.next;
+            }
+            if(timeout.next != null){
+                timeout.next.prev = timeout.prev;
+            }
+            if(timeout == head){
+                head = timeout.next;
+            }
+            if(timeout == tail){
+                tail = timeout.prev;
+            }
+
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
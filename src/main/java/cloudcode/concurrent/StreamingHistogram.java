@@ -0,0 +1,96 @@
+package cloudcode.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*Lock-free histogram of non-negative values with log-linear buckets: values below SUB_BUCKETS get a bucket each, and every power of two above
+is split in SUB_BUCKETS buckets, so a percentile is never off by more than 1/SUB_BUCKETS of its value whatever the range. Recording is a single
+atomic increment. Halving every count (decay) turns it into an exponentially weighted window, so the distribution follows the recent values.*/
+public final class StreamingHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    //Larger values are recorded in the last bucket
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    private static final int BUCKETS = bucketOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long value){
+        counts.incrementAndGet(bucketOf(Math.min(Math.max(value, 0L), MAX_VALUE)));
+    }
+
+    //The count is only exact if nothing is recorded meanwhile, it's a snapshot bucket by bucket
+    public long getCount(){
+        long count = 0L;
+        for(int i = 0; i < BUCKETS; i++){
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    //Upper bound of the bucket the percentile (0 to 100) falls in, or -1 if nothing was recorded
+    public long getPercentile(double percentile){
+        long[] snapshot = snapshot();
+        long count = 0L;
+        for(long bucket : snapshot){
+            count += bucket;
+        }
+        if(count == 0L){
+            return -1L;
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(count * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0));
+        long seen = 0L;
+        for(int i = 0; i < snapshot.length; i++){
+            seen += snapshot[i];
+            if(seen >= rank){
+                return getUpperBound(i);
+            }
+        }
+        return MAX_VALUE;
+    }
+
+    //Halves every count, the buckets left with a single value are emptied
+    public void decay(){
+        for(int i = 0; i < BUCKETS; i++){
+            counts.getAndUpdate(i, count -> count >> 1);
+        }
+    }
+
+    public void clear(){
+        for(int i = 0; i < BUCKETS; i++){
+            counts.set(i, 0L);
+        }
+    }
+
+    //Count of every bucket, getUpperBound(i) is the highest value of bucket i
+    public long[] snapshot(){
+        long[] snapshot = new long[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++){
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    public static long getUpperBound(int bucket){
+        if(bucket < SUB_BUCKETS){
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        long sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    private static int bucketOf(long value){
+        if(value < SUB_BUCKETS){
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+}
@@ -0,0 +1,62 @@
+package cloudcode.controllers;
+
+import cloudcode.entities.Constellation;
+import cloudcode.services.ConstellationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Locale;
+
+@RestController
+public final class ConstellationController {
+  private static final Logger logger = LoggerFactory.getLogger(ConstellationController.class);
+  private static final String RELOAD_SECRET_HEADER = "X-Reload-Secret";
+  private MessageSource messageSource;
+  private ConstellationRegistry constellationRegistry;
+  private final byte[] reloadSecret;
+
+  public ConstellationController(ConstellationRegistry constellationRegistry, MessageSource messageSource,
+                                 @Value("${constellation.reload.secret}") String reloadSecret){
+    this.constellationRegistry = constellationRegistry;
+    this.messageSource = messageSource;
+    this.reloadSecret = reloadSecret.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @GetMapping(value = "/constellation", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity constellationGET(){
+    return new ResponseEntity<>(Collections.singletonMap("satellites", constellationRegistry.getConstellation().getSatellites()), HttpStatus.OK);
+  }
+
+  //Reads the configured location again, the previous constellation stays installed if the new one is invalid. Only callers that send the
+  //configured secret can reload it, and nobody can when there's none
+  @PostMapping(value = "/constellation/reload", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity constellationReloadPOST(@RequestHeader(value = RELOAD_SECRET_HEADER, required = false) String secret){
+    if(reloadSecret.length == 0 || secret == null || !MessageDigest.isEqual(reloadSecret, secret.getBytes(StandardCharsets.UTF_8))){
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).body(messageSource.getMessage("FORBIDDEN_RELOAD_MESSAGE", null, Locale.US));
+    }
+
+    try{
+      Constellation constellation = constellationRegistry.reload();
+      return new ResponseEntity<>(Collections.singletonMap("satellites", constellation.getSatellites()), HttpStatus.OK);
+    }
+
+    catch (IllegalArgumentException | UncheckedIOException e){
+      logger.warn("Constellation reload failed: " + e.getMessage());
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(messageSource.getMessage("INVALID_CONSTELLATION_MESSAGE", null, Locale.US));
+    }
+  }
+
+}
@@ -0,0 +1,47 @@
+package cloudcode.controllers;
+
+import cloudcode.admission.AdmissionGate;
+import cloudcode.entities.AdmissionMetrics;
+import cloudcode.entities.SplitMetrics;
+import cloudcode.entities.SplitTimeoutMetrics;
+import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+public final class SplitMetricsController {
+  private final SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService;
+  private final List<AdmissionGate> admissionGates;
+
+  public SplitMetricsController(SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService, List<AdmissionGate> admissionGates){
+    this.splitSatelliteMessagesProcessorService = splitSatelliteMessagesProcessorService;
+    this.admissionGates = admissionGates;
+  }
+
+  //Counters of the split sessions of this instance and the hit rate of each completion policy
+  @GetMapping(value = "/metrics/split", produces = MediaType.APPLICATION_JSON_VALUE)
+  public SplitMetrics splitMetrics(){
+    return splitSatelliteMessagesProcessorService.getMetrics();
+  }
+
+  //Deadline of the new split sessions and the histograms of the fragment arrival gaps it's learned from
+  @GetMapping(value = "/metrics/split/timeout", produces = MediaType.APPLICATION_JSON_VALUE)
+  public SplitTimeoutMetrics splitTimeoutMetrics(){
+    return splitSatelliteMessagesProcessorService.getTimeoutMetrics();
+  }
+
+  //Requests admitted and shed by each endpoint's gate and the calls in flight, the pending session budget is in /metrics/split
+  @GetMapping(value = "/metrics/admission", produces = MediaType.APPLICATION_JSON_VALUE)
+  public List<AdmissionMetrics> admissionMetrics(){
+    List<AdmissionMetrics> metrics = new ArrayList<>(admissionGates.size());
+    for(AdmissionGate admissionGate : admissionGates){
+      metrics.add(admissionGate.getMetrics());
+    }
+    return metrics;
+  }
+
+}
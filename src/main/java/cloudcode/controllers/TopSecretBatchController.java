@@ -0,0 +1,97 @@
+package cloudcode.controllers;
+
+import cloudcode.entities.BatchResponseEntry;
+import cloudcode.parsers.Transmission;
+import cloudcode.parsers.TransmissionParser;
+import cloudcode.services.BatchTransmissionsProcessorService;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+@RestController
+public final class TopSecretBatchController {
+  private static final Logger logger = LoggerFactory.getLogger(TopSecretBatchController.class);
+  private BatchTransmissionsProcessorService batchTransmissionsProcessorService;
+  private static final ObjectReader objectReader = new ObjectMapper().reader();
+  private static final ThreadLocal<TransmissionParser> transmissionParser = ThreadLocal.withInitial(TransmissionParser::new);
+  private final ResponseEntity<String> invalidJsonResponse;
+  private final ResponseEntity<String> tooManyTransmissionsResponse;
+
+  public TopSecretBatchController(BatchTransmissionsProcessorService batchTransmissionsProcessorService, MessageSource messageSource){
+    this.batchTransmissionsProcessorService = batchTransmissionsProcessorService;
+    this.invalidJsonResponse = ResponseEntity.status(HttpStatus.NOT_FOUND).body(messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US));
+    this.tooManyTransmissionsResponse = ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(messageSource.getMessage("TOO_MANY_TRANSMISSIONS_MESSAGE", null, Locale.US));
+  }
+
+  /*Takes an array of /topsecret payloads and answers an array with an entry per transmission in the same order. Only a body that isn't a JSON
+  array fails the whole batch, an invalid transmission just gets an invalid entry.*/
+  @PostMapping(value = "/topsecret/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity topSecretBatchPOST(InputStream body){
+    try(JsonParser parser = objectReader.createParser(body)){
+      if(parser.nextToken() != JsonToken.START_ARRAY){
+        return invalidJsonResponse;
+      }
+
+      JsonStreamContext entries = parser.getParsingContext();
+      TransmissionParser transmissionParser = TopSecretBatchController.transmissionParser.get();
+      int maxTransmissions = batchTransmissionsProcessorService.getMaxTransmissions();
+      Transmission[] transmissions = new Transmission[Math.min(maxTransmissions, 256)];
+      int count = 0;
+
+      JsonToken token;
+      while((token = parser.nextToken()) != JsonToken.END_ARRAY){
+        if(token == null){
+          throw new EOFException();
+        }
+        if(count == maxTransmissions){
+          return tooManyTransmissionsResponse;
+        }
+        if(count == transmissions.length){
+          transmissions = Arrays.copyOf(transmissions, Math.min(maxTransmissions, count << 1));
+        }
+
+        transmissions[count++] = parseTransmission(parser, transmissionParser, entries);
+      }
+
+      return new ResponseEntity<>(batchTransmissionsProcessorService.solve(transmissions, count), HttpStatus.OK);
+    }
+
+    catch (IOException e){
+      return invalidJsonResponse;
+    }
+  }
+
+  //Returns null if the transmission isn't valid, leaving the parser at its last token so the next one can be read
+  private static Transmission parseTransmission(JsonParser parser, TransmissionParser transmissionParser, JsonStreamContext entries) throws IOException {
+    try{
+      return transmissionParser.parseCurrent(parser, new Transmission());
+    }
+
+    catch (IllegalArgumentException e){
+      //The error can be anywhere inside the transmission, we skip tokens until we're back in the array
+      while(parser.getParsingContext() != entries){
+        if(parser.nextToken() == null){
+          throw new EOFException();
+        }
+      }
+      return null;
+    }
+  }
+
+}
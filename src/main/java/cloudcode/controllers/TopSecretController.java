@@ -1,68 +1,82 @@
 package cloudcode.controllers;
 
 import cloudcode.BasicFunctions;
-import cloudcode.entities.RequestObject;
+import cloudcode.admission.AdmissionGate;
+import cloudcode.entities.Location;
 import cloudcode.entities.ResponseObject;
-import cloudcode.entities.SatelliteMessage;
 import cloudcode.exceptions.LocationProcessingException;
 import cloudcode.exceptions.MessageProcessingException;
+import cloudcode.metrics.HotPathMetrics;
+import cloudcode.parsers.Transmission;
+import cloudcode.parsers.TransmissionParser;
 import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.MessageSource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
 
 @RestController
 public final class TopSecretController {
   private static final Logger logger = LoggerFactory.getLogger(TopSecretController.class);
-  private MessageSource messageSource;
   private SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService;
-  private static final ObjectMapper objectMapper = new ObjectMapper();
+  //Readers are immutable and thread-safe, unlike the per-thread parser state below
+  private static final ObjectReader objectReader = new ObjectMapper().reader();
+  private static final ThreadLocal<TransmissionParser> transmissionParser = ThreadLocal.withInitial(TransmissionParser::new);
+  private static final ThreadLocal<Transmission> transmissions = ThreadLocal.withInitial(Transmission::new);
+  private final ResponseEntity<String> invalidJsonResponse;
+  private final ResponseEntity<String> insufficientDataResponse;
+  private final AdmissionGate admissionGate;
 
-  public TopSecretController(SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService, MessageSource messageSource){
+  public TopSecretController(SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService, MessageSource messageSource,
+                             @Qualifier("topSecretAdmissionGate") AdmissionGate admissionGate){
     this.splitSatelliteMessagesProcessorService = splitSatelliteMessagesProcessorService;
-    this.messageSource = messageSource;
+    this.admissionGate = admissionGate;
+
+    //The error responses never change, they're built once and shared by every request
+    this.invalidJsonResponse = ResponseEntity.status(HttpStatus.NOT_FOUND).body(messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US));
+    this.insufficientDataResponse = ResponseEntity.status(HttpStatus.NOT_FOUND).body(messageSource.getMessage("INSUFFICIENT_DATA_MESSAGE", null, Locale.US));
   }
 
+  //The body is read token by token, straight into the transmission's slots, instead of binding it to a map and then to the entities
   @PostMapping(value = "/topsecret", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity topSecretPOST(@RequestBody Map satelliteMessages){
-    try{
-      RequestObject result = objectMapper.convertValue(satelliteMessages, RequestObject.class);
-
-      if(result == null){
-        synchronized (this){
-          return ResponseEntity.status(HttpStatus.NOT_FOUND).body(messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US));
-        }
-      }
+  public ResponseEntity topSecretPOST(InputStream body){
+    long start = System.nanoTime();
+    ResponseEntity<String> shed = admissionGate.tryAdmit();
+    if(shed != null){
+      return shed;
+    }
 
-      List<String[]> messages = Arrays.stream(result.getSatelliteMessages()).map(SatelliteMessage::getMessage).collect(Collectors.toList());
+    try(JsonParser parser = objectReader.createParser(body)){
+      Transmission transmission = transmissionParser.get().parse(parser, transmissions.get());
+      HotPathMetrics.recordTopSecretBinding(System.nanoTime() - start);
 
-      Double[] distances = Arrays.stream(result.getSatelliteMessages()).sorted(Comparator.comparing(SatelliteMessage::getName))
-                          .map(SatelliteMessage::getDistance).toArray(Double[]::new);
+      //Three readings of the default constellation go through the closed form, anything else is solved by least squares
+      Location location = BasicFunctions.GetLocation(transmission.getConstellation(), transmission.getSatelliteIds(), transmission.getDistances(), transmission.getCount());
 
-      synchronized (this){
-        return new ResponseEntity<>(new ResponseObject(BasicFunctions.GetLocation(distances), BasicFunctions.GetMessage(messages)), HttpStatus.OK);
-      }
+      return new ResponseEntity<>(new ResponseObject(location, BasicFunctions.GetMessage(transmission.getMessages())), HttpStatus.OK);
     }
 
-    catch (IllegalArgumentException e){
-      synchronized (this){
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US));
-      }
+    catch (IllegalArgumentException | IOException e){
+      return invalidJsonResponse;
     }
     catch (LocationProcessingException | MessageProcessingException e){
-      synchronized (this) {
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(messageSource.getMessage("INSUFFICIENT_DATA_MESSAGE", null, Locale.US));
-      }
+      return insufficientDataResponse;
+    }
+    finally {
+      admissionGate.release();
+      HotPathMetrics.recordTopSecretRequest(System.nanoTime() - start);
     }
   }
 
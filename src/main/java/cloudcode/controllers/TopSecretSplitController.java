@@ -1,79 +1,136 @@
 package cloudcode.controllers;
 
+import cloudcode.admission.AdmissionGate;
+import cloudcode.metrics.HotPathMetrics;
 import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import cloudcode.services.StatelessSplitService;
 import cloudcode.entities.SatelliteMessage;
+import cloudcode.entities.SplitSessionEstimate;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.MessageSource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
+import java.io.IOException;
 import java.util.Locale;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 
 @RestController
 public final class TopSecretSplitController {
   private static final Logger logger = LoggerFactory.getLogger(TopSecretSplitController.class);
-  private MessageSource messageSource;
   private SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService;
-  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private StatelessSplitService statelessSplitService;
+  private static final ObjectReader satelliteMessageReader = new ObjectMapper().readerFor(SatelliteMessage.class);
+  private final ResponseEntity<String> invalidJsonResponse;
+  private final ResponseEntity<String> sessionNotFoundResponse;
+  private final AdmissionGate admissionGate;
+  public static final String TRANSMISSION_ID_HEADER = "X-Transmission-Id";
 
 
-  public TopSecretSplitController(SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService, MessageSource messageSource){
+  public TopSecretSplitController(SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService, StatelessSplitService statelessSplitService, MessageSource messageSource,
+                                  @Qualifier("splitAdmissionGate") AdmissionGate admissionGate){
     this.splitSatelliteMessagesProcessorService = splitSatelliteMessagesProcessorService;
-    this.messageSource = messageSource;
+    this.admissionGate = admissionGate;
+    this.statelessSplitService = statelessSplitService;
+    this.invalidJsonResponse = ResponseEntity.status(HttpStatus.BAD_REQUEST).body(messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US));
+    this.sessionNotFoundResponse = ResponseEntity.status(HttpStatus.NOT_FOUND).body(messageSource.getMessage("SPLIT_SESSION_NOT_FOUND_MESSAGE", null, Locale.US));
   }
 
-  @PostMapping(value = "/topsecret_split/{name}", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity topSecretSplitPOST(@RequestBody Map message, @PathVariable String name){
-    message.put("name", name);
+  //Candidates and partially merged message of a transmission still waiting for fragments on this instance. It's outside of /topsecret_split,
+  //where it would take the GET fragments of a transmission called "sessions"
+  @GetMapping(value = "/topsecret_split_sessions/{transmissionId}", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity topSecretSplitSession(@PathVariable String transmissionId){
+    SplitSessionEstimate estimate = splitSatelliteMessagesProcessorService.getSessionEstimate(transmissionId);
 
-    try{
-      SatelliteMessage satelliteMessage = objectMapper.convertValue(message, SatelliteMessage.class);
-      CompletableFuture<ResponseEntity> response = splitSatelliteMessagesProcessorService.addSatelliteMessage(satelliteMessage);
-      ResponseEntity result = response.get();
+    return estimate != null ? ResponseEntity.ok(estimate) : sessionNotFoundResponse;
+  }
 
-      synchronized (this){
-        return result;
+  @PostMapping(value = {"/topsecret_split/{name}", "/topsecret_split/{transmissionId}/{name}"}, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+  public CompletableFuture<ResponseEntity> topSecretSplitPOST(@RequestBody JsonNode message, @PathVariable String name, @PathVariable(required = false) String transmissionId,
+                                                                                 @RequestHeader(value = TRANSMISSION_ID_HEADER, required = false) String transmissionIdHeader,
+                                                                                 @RequestHeader(value = StatelessSplitService.SPLIT_TOKEN_HEADER, required = false) String splitToken){
+    long start = System.nanoTime();
+    try{
+      if(!message.isObject()){
+        return CompletableFuture.completedFuture(invalidJsonResponse);
       }
+      ((ObjectNode) message).put("name", name);
+
+      SatelliteMessage satelliteMessage = satelliteMessageReader.readValue(message);
+      HotPathMetrics.recordSplitBinding(System.nanoTime() - start);
+
+      return addSatelliteMessage(satelliteMessage, transmissionId, transmissionIdHeader, splitToken, start);
     }
 
-    catch (IllegalArgumentException | InterruptedException | ExecutionException e){
-      synchronized (this){
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US));
-      }
+    catch (IllegalArgumentException | IOException e){
+      return CompletableFuture.completedFuture(invalidJsonResponse);
     }
   }
 
-  @GetMapping(value = "/topsecret_split/{name}", produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity topSecretSplitGET(@PathVariable String name, @RequestParam Double distance, @RequestParam String[] message){
-    Map<String, Object> objectToParse = new HashMap<>();
-    objectToParse.put("name", name);
-    objectToParse.put("distance", distance);
-    objectToParse.put("message", message);
-
+  @GetMapping(value = {"/topsecret_split/{name}", "/topsecret_split/{transmissionId}/{name}"}, produces = MediaType.APPLICATION_JSON_VALUE)
+  public CompletableFuture<ResponseEntity> topSecretSplitGET(@PathVariable String name, @RequestParam Double distance, @RequestParam String[] message, @PathVariable(required = false) String transmissionId,
+                                                             @RequestHeader(value = TRANSMISSION_ID_HEADER, required = false) String transmissionIdHeader,
+                                                             @RequestHeader(value = StatelessSplitService.SPLIT_TOKEN_HEADER, required = false) String splitToken){
+    long start = System.nanoTime();
     try{
-      SatelliteMessage satelliteMessage = objectMapper.convertValue(objectToParse, SatelliteMessage.class);
-      CompletableFuture<ResponseEntity> response = splitSatelliteMessagesProcessorService.addSatelliteMessage(satelliteMessage);
-      ResponseEntity result = response.get();
+      //The parameters are already typed, the entity validates them without going through a mapper
+      SatelliteMessage satelliteMessage = new SatelliteMessage(message, distance, name);
+      HotPathMetrics.recordSplitBinding(System.nanoTime() - start);
 
-      synchronized (this){
-        return result;
-      }
+      return addSatelliteMessage(satelliteMessage, transmissionId, transmissionIdHeader, splitToken, start);
     }
 
-    catch (IllegalArgumentException | InterruptedException | ExecutionException e){
-      synchronized (this){
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US));
+    catch (IllegalArgumentException e){
+      return CompletableFuture.completedFuture(invalidJsonResponse);
+    }
+  }
+
+  /*Requests with a split token are joined by the client itself, the rest wait in a session of this instance. The request is timed until its
+  response is ready, for the ones waiting for the rest of the fragments that's when the session completes.*/
+  private CompletableFuture<ResponseEntity> addSatelliteMessage(SatelliteMessage satelliteMessage, String transmissionId, String transmissionIdHeader, String splitToken, long start){
+    ResponseEntity<String> shed = admissionGate.tryAdmit();
+    if(shed != null){
+      HotPathMetrics.recordSplitRequest(System.nanoTime() - start);
+      return CompletableFuture.completedFuture(shed);
+    }
+
+    try{
+      if(splitToken != null){
+        ResponseEntity response = statelessSplitService.addSatelliteMessage(splitToken, satelliteMessage);
+        HotPathMetrics.recordSplitRequest(System.nanoTime() - start);
+        return CompletableFuture.completedFuture(response);
       }
+
+      //The servlet thread is released here, the response is written when the transmission's session completes. The stage that maps the
+      //failures was there already, timing the request in it doesn't cost another allocation
+      return splitSatelliteMessagesProcessorService.addSatelliteMessage(resolveTransmissionId(transmissionId, transmissionIdHeader), satelliteMessage)
+              .handle((response, e) -> {
+                HotPathMetrics.recordSplitRequest(System.nanoTime() - start);
+                return e == null ? response : invalidJsonResponse;
+              });
+    }
+    finally {
+      admissionGate.release();
     }
   }
 
+  //The path segment takes precedence over the header, fragments without any of them are joined in a shared default transmission
+  private static String resolveTransmissionId(String transmissionId, String transmissionIdHeader){
+    if(transmissionId != null && !transmissionId.isBlank()){
+      return transmissionId;
+    }
+    if(transmissionIdHeader != null && !transmissionIdHeader.isBlank()){
+      return transmissionIdHeader;
+    }
+    return SplitSatelliteMessagesProcessorService.DEFAULT_TRANSMISSION_ID;
+  }
 
-}
+}
\ No newline at end of file
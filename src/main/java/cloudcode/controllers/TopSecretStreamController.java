@@ -0,0 +1,93 @@
+package cloudcode.controllers;
+
+import cloudcode.entities.BatchResponseEntry;
+import cloudcode.parsers.LineReader;
+import cloudcode.parsers.Transmission;
+import cloudcode.parsers.TransmissionParser;
+import cloudcode.services.BatchTransmissionsProcessorService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+public final class TopSecretStreamController {
+  private static final Logger logger = LoggerFactory.getLogger(TopSecretStreamController.class);
+  private static final int READ_BUFFER_SIZE = 8192;
+  private BatchTransmissionsProcessorService batchTransmissionsProcessorService;
+  private static final ObjectReader objectReader = new ObjectMapper().reader();
+  //The results are flushed when the input runs dry instead of after every one of them
+  private static final ObjectWriter entryWriter = new ObjectMapper().disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE).writerFor(BatchResponseEntry.class);
+
+  @Value("${topsecret.stream.maxLineLength}")
+  private int maxLineLength;
+
+  public TopSecretStreamController(BatchTransmissionsProcessorService batchTransmissionsProcessorService){
+    this.batchTransmissionsProcessorService = batchTransmissionsProcessorService;
+  }
+
+  /*Reads a /topsecret payload per line as they arrive and writes a /topsecret/batch entry per non blank line in the same order. The request thread
+  reads, solves and writes one transmission at a time with blocking IO, so a client that doesn't read its results stops the reading of its
+  transmissions instead of making the server buffer them, and memory doesn't grow with the length of the stream.*/
+  @PostMapping(value = "/topsecret/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public void topSecretStreamPOST(InputStream body, HttpServletResponse response) throws IOException {
+    response.setStatus(HttpStatus.OK.value());
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+
+    LineReader lines = new LineReader(body, READ_BUFFER_SIZE, maxLineLength);
+    TransmissionParser transmissionParser = new TransmissionParser();
+    Transmission transmission = new Transmission();
+
+    try(JsonGenerator generator = entryWriter.createGenerator(response.getOutputStream())){
+      generator.setRootValueSeparator(null);
+
+      while(lines.nextLine()){
+        if(lines.isBlank()){
+          continue;
+        }
+
+        entryWriter.writeValue(generator, solve(lines, transmissionParser, transmission));
+        generator.writeRaw('\n');
+
+        if(!lines.hasAvailableInput()){
+          generator.flush();
+        }
+      }
+    }
+  }
+
+  private BatchResponseEntry solve(LineReader lines, TransmissionParser transmissionParser, Transmission transmission) throws IOException {
+    if(lines.isTruncated()){
+      return batchTransmissionsProcessorService.solve(null);
+    }
+
+    try(JsonParser parser = objectReader.createParser(lines.getLine(), 0, lines.getLineLength())){
+      transmissionParser.parse(parser, transmission);
+
+      //A line is a single transmission
+      if(parser.nextToken() != null){
+        return batchTransmissionsProcessorService.solve(null);
+      }
+    }
+    catch (IllegalArgumentException | JsonProcessingException e){
+      return batchTransmissionsProcessorService.solve(null);
+    }
+
+    return batchTransmissionsProcessorService.solve(transmission);
+  }
+
+}
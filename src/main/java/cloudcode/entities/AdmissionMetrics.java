@@ -0,0 +1,51 @@
+package cloudcode.entities;
+
+/*Counters of an admission gate since the instance started, and its current load: the calls in flight against the bulkhead's limit and the
+permissions left in the rate limiter's period (-1 when it's disabled).*/
+public final class AdmissionMetrics {
+    private final String name;
+    private final long admitted;
+    private final long shedRateLimited;
+    private final long shedBulkheadFull;
+    private final int inFlight;
+    private final int maxConcurrentCalls;
+    private final int availablePermissions;
+
+    public AdmissionMetrics(String name, long admitted, long shedRateLimited, long shedBulkheadFull, int inFlight, int maxConcurrentCalls, int availablePermissions){
+        this.name = name;
+        this.admitted = admitted;
+        this.shedRateLimited = shedRateLimited;
+        this.shedBulkheadFull = shedBulkheadFull;
+        this.inFlight = inFlight;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.availablePermissions = availablePermissions;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    public long getShedRateLimited() {
+        return shedRateLimited;
+    }
+
+    public long getShedBulkheadFull() {
+        return shedBulkheadFull;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public int getAvailablePermissions() {
+        return availablePermissions;
+    }
+}
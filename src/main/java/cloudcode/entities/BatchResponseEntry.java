@@ -0,0 +1,44 @@
+package cloudcode.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+//Result of a transmission of a batch, status is the one /topsecret would have answered and error its body when it's not solved
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class BatchResponseEntry {
+    private final int status;
+    private final Location position;
+    private final String[] message;
+    private final String error;
+
+    private BatchResponseEntry(int status, Location position, String[] message, String error){
+        this.status = status;
+        this.position = position;
+        this.message = message;
+        this.error = error;
+    }
+
+    public static BatchResponseEntry solved(Location position, String[] message){
+        return new BatchResponseEntry(200, position, message, null);
+    }
+
+    //Failed entries don't depend on the transmission, so the same instance can be shared by all of them
+    public static BatchResponseEntry failed(int status, String error){
+        return new BatchResponseEntry(status, null, null, error);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Location getPosition() {
+        return position;
+    }
+
+    public String[] getMessage() {
+        return message;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
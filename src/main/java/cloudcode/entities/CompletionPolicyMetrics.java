@@ -0,0 +1,30 @@
+package cloudcode.entities;
+
+//How often a completion policy was asked whether a split session could be answered early and how often it could
+public final class CompletionPolicyMetrics {
+    private final String name;
+    private final long evaluations;
+    private final long hits;
+
+    public CompletionPolicyMetrics(String name, long evaluations, long hits){
+        this.name = name;
+        this.evaluations = evaluations;
+        this.hits = hits;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public double getHitRate() {
+        return evaluations == 0 ? 0.0 : (double) hits / evaluations;
+    }
+}
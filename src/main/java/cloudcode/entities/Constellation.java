@@ -0,0 +1,279 @@
+package cloudcode.entities;
+
+import cloudcode.solvers.MultilaterationSolver;
+import cloudcode.solvers.TrilaterationSolver;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/*Immutable snapshot of the satellites we receive messages from. Every satellite gets a dense ID following the alphabetical order of the names
+(so the default one keeps the Kenobi, Sato, Skywalker order), and everything that only depends on their positions is computed once here.
+The current snapshot is swapped atomically when the constellation is reloaded.*/
+public final class Constellation {
+
+    public static final String DEFAULT_RESOURCE = "constellation.json";
+
+    private static volatile Constellation current;
+
+    private final SatelliteDefinition[] satellites;
+    private final Location[] locations;
+
+    //Pairwise geometry, entry i * size + j is the vector and the distance from satellite i to satellite j
+    private final double[] baselineX;
+    private final double[] baselineY;
+    private final double[] baselineDistance;
+
+    //Open addressing table from the case-insensitive hash of a name to its ID + 1 (0 is an empty slot)
+    private final int[] nameSlots;
+    private final int nameMask;
+
+    private final TrilaterationSolver trilaterationSolver;
+    private final MultilaterationSolver multilaterationSolver;
+    private final double tolerance;
+
+    //Hash of the names and positions, state that refers to satellites by ID is only valid for a constellation with the same fingerprint
+    private final int fingerprint;
+
+    public Constellation(List<SatelliteDefinition> satellites, double tolerance){
+        this(satellites, tolerance, new MultilaterationSolver(MultilaterationSolver.DEFAULT_MAX_ITERATIONS, tolerance));
+    }
+
+    //The solvers are configured per snapshot, so a reload (or a test) can't change them under the requests already using another one
+    public Constellation(List<SatelliteDefinition> satellites, double tolerance, MultilaterationSolver multilaterationSolver){
+        if(satellites == null || satellites.size() < 3){
+            throw new IllegalArgumentException("A constellation needs at least 3 satellites");
+        }
+
+        this.satellites = satellites.toArray(new SatelliteDefinition[0]);
+        Arrays.sort(this.satellites, Comparator.comparing(SatelliteDefinition::getName));
+        this.tolerance = tolerance;
+        this.multilaterationSolver = multilaterationSolver;
+
+        int size = this.satellites.length;
+        this.locations = new Location[size];
+        this.baselineX = new double[size * size];
+        this.baselineY = new double[size * size];
+        this.baselineDistance = new double[size * size];
+
+        int slots = Integer.highestOneBit(size * 4 - 1) << 1;
+        this.nameSlots = new int[slots];
+        this.nameMask = slots - 1;
+
+        for(int i = 0; i < size; i++){
+            SatelliteDefinition satellite = this.satellites[i];
+            locations[i] = new Location(satellite.getX(), satellite.getY());
+
+            if(indexOf(satellite.getName()) >= 0){
+                throw new IllegalArgumentException("Repeated satellite " + satellite.getName());
+            }
+            int slot = hash(satellite.getName(), 0, satellite.getName().length()) & nameMask;
+            while(nameSlots[slot] != 0){
+                slot = (slot + 1) & nameMask;
+            }
+            nameSlots[slot] = i + 1;
+
+            for(int j = 0; j < size; j++){
+                double dx = this.satellites[j].getX() - satellite.getX();
+                double dy = this.satellites[j].getY() - satellite.getY();
+                baselineX[i * size + j] = dx;
+                baselineY[i * size + j] = dy;
+                baselineDistance[i * size + j] = Math.sqrt(dx * dx + dy * dy);
+            }
+        }
+
+        for(int i = 0; i < size; i++){
+            for(int j = i + 1; j < size; j++){
+                if(baselineDistance[i * size + j] == 0.0){
+                    throw new IllegalArgumentException("Satellites " + getName(i) + " and " + getName(j) + " share their position");
+                }
+            }
+        }
+
+        int fingerprint = size;
+        for(SatelliteDefinition satellite : this.satellites){
+            fingerprint = 31 * fingerprint + satellite.getName().hashCode();
+            fingerprint = 31 * fingerprint + Double.hashCode(satellite.getX());
+            fingerprint = 31 * fingerprint + Double.hashCode(satellite.getY());
+        }
+        this.fingerprint = fingerprint;
+
+        this.trilaterationSolver = new TrilaterationSolver(locations[0].getX(), locations[0].getY(), locations[1].getX(), locations[1].getY(),
+                                                           locations[2].getX(), locations[2].getY(), tolerance);
+    }
+
+    public static Constellation current(){
+        Constellation constellation = current;
+        if(constellation == null){
+            synchronized (Constellation.class){
+                constellation = current;
+                if(constellation == null){
+                    constellation = current = load(Constellation.class.getClassLoader().getResourceAsStream(DEFAULT_RESOURCE), TrilaterationSolver.DEFAULT_TOLERANCE,
+                                                   new MultilaterationSolver(MultilaterationSolver.DEFAULT_MAX_ITERATIONS, TrilaterationSolver.DEFAULT_TOLERANCE));
+                }
+            }
+        }
+        return constellation;
+    }
+
+    public static void install(Constellation constellation){
+        current = constellation;
+    }
+
+    public static Constellation load(InputStream inputStream, double tolerance, MultilaterationSolver multilaterationSolver){
+        if(inputStream == null){
+            throw new IllegalArgumentException("The constellation configuration doesn't exist");
+        }
+
+        try(InputStream input = inputStream){
+            ObjectMapper objectMapper = new ObjectMapper();
+            JsonNode satellites = objectMapper.readTree(input).get("satellites");
+
+            if(satellites == null || !satellites.isArray()){
+                throw new IllegalArgumentException("The constellation configuration doesn't have a satellites array");
+            }
+
+            return new Constellation(Arrays.asList(objectMapper.treeToValue(satellites, SatelliteDefinition[].class)), tolerance, multilaterationSolver);
+        }
+        catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Returns the ID of the satellite or -1, the comparison ignores the case and doesn't allocate
+    public int indexOf(CharSequence name){
+        if(name == null){
+            return -1;
+        }
+
+        int length = name.length();
+        int slot = hash(name, 0, length) & nameMask;
+
+        while(true){
+            int entry = nameSlots[slot];
+            if(entry == 0){
+                return -1;
+            }
+            if(equalsIgnoreCase(satellites[entry - 1].getName(), name, 0, length)){
+                return entry - 1;
+            }
+            slot = (slot + 1) & nameMask;
+        }
+    }
+
+    //Same as indexOf(CharSequence) over a slice of a char buffer, as the ones handed out by streaming parsers
+    public int indexOf(char[] buffer, int offset, int length){
+        int slot = hash(buffer, offset, length) & nameMask;
+
+        while(true){
+            int entry = nameSlots[slot];
+            if(entry == 0){
+                return -1;
+            }
+            if(equalsIgnoreCase(satellites[entry - 1].getName(), buffer, offset, length)){
+                return entry - 1;
+            }
+            slot = (slot + 1) & nameMask;
+        }
+    }
+
+    public int size(){
+        return satellites.length;
+    }
+
+    //Names are stored in lower case
+    public String getName(int id){
+        return satellites[id].getName();
+    }
+
+    public Location getLocation(int id){
+        return locations[id];
+    }
+
+    public double getX(int id){
+        return satellites[id].getX();
+    }
+
+    public double getY(int id){
+        return satellites[id].getY();
+    }
+
+    public double getBaselineX(int from, int to){
+        return baselineX[from * satellites.length + to];
+    }
+
+    public double getBaselineY(int from, int to){
+        return baselineY[from * satellites.length + to];
+    }
+
+    public double getBaselineDistance(int from, int to){
+        return baselineDistance[from * satellites.length + to];
+    }
+
+    //Solver for the first three satellites
+    public TrilaterationSolver getTrilaterationSolver(){
+        return trilaterationSolver;
+    }
+
+    //Least-squares solver for any other amount of readings
+    public MultilaterationSolver getMultilaterationSolver(){
+        return multilaterationSolver;
+    }
+
+    public double getTolerance(){
+        return tolerance;
+    }
+
+    public int getFingerprint(){
+        return fingerprint;
+    }
+
+    public List<SatelliteDefinition> getSatellites(){
+        return Arrays.asList(satellites.clone());
+    }
+
+    private static int hash(CharSequence name, int offset, int length){
+        int hash = 0;
+        for(int i = offset; i < offset + length; i++){
+            hash = 31 * hash + Character.toLowerCase(name.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int hash(char[] name, int offset, int length){
+        int hash = 0;
+        for(int i = offset; i < offset + length; i++){
+            hash = 31 * hash + Character.toLowerCase(name[i]);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equalsIgnoreCase(String lowerCaseName, CharSequence name, int offset, int length){
+        if(lowerCaseName.length() != length){
+            return false;
+        }
+        for(int i = 0; i < length; i++){
+            if(lowerCaseName.charAt(i) != Character.toLowerCase(name.charAt(offset + i))){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(String lowerCaseName, char[] name, int offset, int length){
+        if(lowerCaseName.length() != length){
+            return false;
+        }
+        for(int i = 0; i < length; i++){
+            if(lowerCaseName.charAt(i) != Character.toLowerCase(name[offset + i])){
+                return false;
+            }
+        }
+        return true;
+    }
+}
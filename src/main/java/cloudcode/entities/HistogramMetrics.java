@@ -0,0 +1,77 @@
+package cloudcode.entities;
+
+import cloudcode.concurrent.StreamingHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Snapshot of a StreamingHistogram in milliseconds, only the buckets that aren't empty are listed
+public final class HistogramMetrics {
+    private final long count;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final List<Bucket> buckets;
+
+    public HistogramMetrics(long count, long p50, long p90, long p99, List<Bucket> buckets){
+        this.count = count;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.buckets = buckets;
+    }
+
+    public static HistogramMetrics of(StreamingHistogram histogram){
+        long[] snapshot = histogram.snapshot();
+        List<Bucket> buckets = new ArrayList<>();
+        long count = 0L;
+
+        for(int i = 0; i < snapshot.length; i++){
+            if(snapshot[i] > 0){
+                buckets.add(new Bucket(StreamingHistogram.getUpperBound(i), snapshot[i]));
+                count += snapshot[i];
+            }
+        }
+
+        return new HistogramMetrics(count, histogram.getPercentile(50.0), histogram.getPercentile(90.0), histogram.getPercentile(99.0), buckets);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public List<Bucket> getBuckets() {
+        return buckets;
+    }
+
+    //Values up to upTo (and above the previous bucket's)
+    public static final class Bucket {
+        private final long upTo;
+        private final long count;
+
+        public Bucket(long upTo, long count){
+            this.upTo = upTo;
+            this.count = count;
+        }
+
+        public long getUpTo() {
+            return upTo;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package cloudcode.entities;
 
-public class Location {
-    private Double x;
-    private Double y;
+//Immutable, so a position can be shared between requests and threads
+public final class Location {
+    private final Double x;
+    private final Double y;
 
     public Location(Double x, Double y){
         this.x = x;
@@ -16,12 +17,4 @@ public class Location {
     public Double getY() {
         return y;
     }
-
-    public void setX(Double x) {
-        this.x = x;
-    }
-
-    public void setY(Double y) {
-        this.y = y;
-    }
 }
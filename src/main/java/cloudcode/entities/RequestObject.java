@@ -8,17 +8,18 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
-public class RequestObject {
+//Readings of 3 or more different satellites
+public final class RequestObject {
 
-    private SatelliteMessage[] satelliteMessages;
+    private final SatelliteMessage[] satelliteMessages;
 
     @JsonCreator
     public RequestObject(@JsonProperty("satellites") SatelliteMessage[] satelliteMessages){
         Set<String> nameSet = new HashSet<>();
 
-        if(satelliteMessages != null && satelliteMessages.length == 3){
+        if(satelliteMessages != null && satelliteMessages.length >= 3){
             Arrays.stream(satelliteMessages).forEach((satellite)-> {nameSet.add(satellite.getName());});
-            if(nameSet.size() == 3){
+            if(nameSet.size() == satelliteMessages.length){
                 this.satelliteMessages = satelliteMessages;
             }
             else throw new JsonParseException();
@@ -29,17 +30,4 @@ public class RequestObject {
     public SatelliteMessage[] getSatelliteMessages() {
         return satelliteMessages;
     }
-
-    public void setSatelliteMessages(SatelliteMessage[] satelliteMessages) {
-        Set<String> nameSet = new HashSet<>();
-
-        if(satelliteMessages != null && (satelliteMessages.length == 3)){
-            Arrays.stream(satelliteMessages).forEach((satellite)-> {nameSet.add(satellite.getName());});
-            if(nameSet.size() == 3){
-                this.satelliteMessages = satelliteMessages;
-            }
-            else throw new JsonParseException();
-        }
-        else throw new JsonParseException();
-    }
 }
@@ -1,8 +1,8 @@
 package cloudcode.entities;
 
-public class ResponseObject {
-    private Location position;
-    private String[] message;
+public final class ResponseObject {
+    private final Location position;
+    private final String[] message;
 
     public ResponseObject(Location position, String[] message){
         this.position = position;
@@ -16,12 +16,4 @@ public class ResponseObject {
     public Location getPosition() {
         return position;
     }
-
-    public void setMessage(String[] message) {
-        this.message = message;
-    }
-
-    public void setPosition(Location position) {
-        this.position = position;
-    }
 }
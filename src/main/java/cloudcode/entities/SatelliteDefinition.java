@@ -0,0 +1,37 @@
+package cloudcode.entities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.boot.json.JsonParseException;
+
+import java.util.Locale;
+
+//A satellite of the constellation as it's written in its configuration
+public class SatelliteDefinition {
+
+    private final String name;
+    private final double x;
+    private final double y;
+
+    @JsonCreator
+    public SatelliteDefinition(@JsonProperty("name") String name, @JsonProperty("x") Double x, @JsonProperty("y") Double y){
+        if(name != null && !name.isBlank() && x != null && y != null && Double.isFinite(x) && Double.isFinite(y)){
+            this.name = name.trim().toLowerCase(Locale.ROOT);
+            this.x = x;
+            this.y = y;
+        }
+        else throw new JsonParseException();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+}
@@ -1,47 +1,33 @@
 package cloudcode.entities;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import org.apache.commons.lang3.EnumUtils;
 import org.springframework.boot.json.JsonParseException;
 
-public class SatelliteMessage {
+//Immutable once validated, so the fragments of a split transmission can be handed between threads without copying them
+public final class SatelliteMessage {
 
-    private Double distance;
-    private String[] message;
-    private String name;
-    private Location satelliteLocation;
+    private final Double distance;
+    private final String[] message;
+    private final String name;
+    private final Location satelliteLocation;
+    private final int satelliteId;
+    private final Constellation constellation;
 
+    //The name is the constellation's own lower case instance, so validating a name doesn't allocate a new one
     @JsonCreator
     public SatelliteMessage(@JsonProperty("message") String[] message, @JsonProperty("distance") Double distance, @JsonProperty("name") String name){
+        Constellation constellation = Constellation.current();
+        int satelliteId = constellation.indexOf(name);
 
-        if(message != null && distance != null && name != null && message.length > 0 && EnumUtils.isValidEnum(SatelliteConstants.satelliteName.class,name.toUpperCase())){
-            this.name = name.toLowerCase();
+        if(message != null && distance != null && message.length > 0 && satelliteId >= 0){
             this.distance = distance;
             this.message = message;
-            this.satelliteLocation = SatelliteConstants.location.valueOf(name.toUpperCase()).getLocation();
-        }
-        else throw new JsonParseException();
-    }
-
-    public void setMessage(String[] message) {
-        if(message != null && message.length > 0){
-            this.message = message;
-        }
-        else throw new JsonParseException();
-    }
-
-    public void setDistance(Double distance) {
-        if(distance != null){
-            this.distance = distance;
-        }
-        else throw new JsonParseException();
-    }
-
-    public void setName(String name) {
-        if(name != null && EnumUtils.isValidEnum(SatelliteConstants.satelliteName.class,name.toUpperCase())){
-            this.name = name.toLowerCase();
-            this.satelliteLocation = SatelliteConstants.location.valueOf(name.toUpperCase()).getLocation();
+            this.constellation = constellation;
+            this.satelliteId = satelliteId;
+            this.name = constellation.getName(satelliteId);
+            this.satelliteLocation = constellation.getLocation(satelliteId);
         }
         else throw new JsonParseException();
     }
@@ -50,10 +36,22 @@ public class SatelliteMessage {
         return name;
     }
 
+    @JsonIgnore
     public Location getSatelliteLocation() {
         return satelliteLocation;
     }
 
+    //Dense ID of the satellite in the constellation it was validated against
+    @JsonIgnore
+    public int getSatelliteId() {
+        return satelliteId;
+    }
+
+    @JsonIgnore
+    public Constellation getConstellation() {
+        return constellation;
+    }
+
     public String[] getMessage() {
         return message;
     }
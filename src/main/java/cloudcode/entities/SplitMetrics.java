@@ -0,0 +1,61 @@
+package cloudcode.entities;
+
+import java.util.List;
+
+/*Counters of the split sessions of this instance since it started: the ones completed by every satellite, the ones completed early by the
+completion policies, the ones that expired, the fragments that arrived after their session had been answered early and the fragments shed
+with a 429 because the pending session budget (maxSessions) was used up.*/
+public final class SplitMetrics {
+    private final int openSessions;
+    private final int maxSessions;
+    private final long completed;
+    private final long completedEarly;
+    private final long expired;
+    private final long lateFragments;
+    private final long shedFragments;
+    private final List<CompletionPolicyMetrics> policies;
+
+    public SplitMetrics(int openSessions, int maxSessions, long completed, long completedEarly, long expired, long lateFragments, long shedFragments,
+                        List<CompletionPolicyMetrics> policies){
+        this.openSessions = openSessions;
+        this.maxSessions = maxSessions;
+        this.completed = completed;
+        this.completedEarly = completedEarly;
+        this.expired = expired;
+        this.lateFragments = lateFragments;
+        this.shedFragments = shedFragments;
+        this.policies = policies;
+    }
+
+    public int getOpenSessions() {
+        return openSessions;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getCompletedEarly() {
+        return completedEarly;
+    }
+
+    public long getExpired() {
+        return expired;
+    }
+
+    public long getLateFragments() {
+        return lateFragments;
+    }
+
+    public long getShedFragments() {
+        return shedFragments;
+    }
+
+    public List<CompletionPolicyMetrics> getPolicies() {
+        return policies;
+    }
+}
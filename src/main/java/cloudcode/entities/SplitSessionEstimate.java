@@ -0,0 +1,36 @@
+package cloudcode.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/*What is known about a pending split transmission: the satellites that already sent their fragments, the points where the circles of the
+first two meet (the position is one of them) and the message merged from the fragments received so far, empty words still unknown.*/
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class SplitSessionEstimate {
+    private final String transmissionId;
+    private final String[] satellites;
+    private final Location[] candidates;
+    private final String[] message;
+
+    public SplitSessionEstimate(String transmissionId, String[] satellites, Location[] candidates, String[] message){
+        this.transmissionId = transmissionId;
+        this.satellites = satellites;
+        this.candidates = candidates;
+        this.message = message;
+    }
+
+    public String getTransmissionId() {
+        return transmissionId;
+    }
+
+    public String[] getSatellites() {
+        return satellites;
+    }
+
+    public Location[] getCandidates() {
+        return candidates;
+    }
+
+    public String[] getMessage() {
+        return message;
+    }
+}
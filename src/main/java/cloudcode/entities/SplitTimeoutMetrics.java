@@ -0,0 +1,53 @@
+package cloudcode.entities;
+
+import java.util.Map;
+
+//Deadline the new split sessions get and the arrival gaps it's learned from, overall and by satellite
+public final class SplitTimeoutMetrics {
+    private final boolean adaptive;
+    private final long timeoutMillis;
+    private final double percentile;
+    private final long minMillis;
+    private final long maxMillis;
+    private final HistogramMetrics overall;
+    private final Map<String, HistogramMetrics> satellites;
+
+    public SplitTimeoutMetrics(boolean adaptive, long timeoutMillis, double percentile, long minMillis, long maxMillis, HistogramMetrics overall,
+                               Map<String, HistogramMetrics> satellites){
+        this.adaptive = adaptive;
+        this.timeoutMillis = timeoutMillis;
+        this.percentile = percentile;
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+        this.overall = overall;
+        this.satellites = satellites;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public long getMinMillis() {
+        return minMillis;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public HistogramMetrics getOverall() {
+        return overall;
+    }
+
+    public Map<String, HistogramMetrics> getSatellites() {
+        return satellites;
+    }
+}
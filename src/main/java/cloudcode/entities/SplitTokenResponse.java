@@ -0,0 +1,15 @@
+package cloudcode.entities;
+
+//Answer to a fragment of a stateless split transmission that isn't complete yet, the token has to be sent back with the next fragment
+public final class SplitTokenResponse {
+
+    private final String token;
+
+    public SplitTokenResponse(String token){
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+}
@@ -0,0 +1,69 @@
+package cloudcode.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*A sampled category of events. Callers check isSampled() before building an event, so an event that isn't logged costs a random draw and
+allocates nothing. A logged event is a parameterized message whose arguments are also its fields: every key and value pair goes to the MDC
+while the event is logged, and the JSON layout writes them as fields of the entry.*/
+public final class EventCategory {
+
+    private static final String LOGGER_PREFIX = "cloudcode.events.";
+
+    private final String name;
+    private final Logger logger;
+    private volatile double rate;
+
+    EventCategory(String name, double rate){
+        this.name = name;
+        this.logger = LoggerFactory.getLogger(LOGGER_PREFIX + name);
+        this.rate = rate;
+    }
+
+    public boolean isSampled(){
+        double rate = this.rate;
+        if(rate <= 0.0 || !logger.isInfoEnabled()){
+            return false;
+        }
+        return rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    //keyValues alternates the name and the value of each field, the values are the arguments of the message in the same order
+    public void log(String message, Object... keyValues){
+        if((keyValues.length & 1) != 0){
+            throw new IllegalArgumentException("Every field of an event needs a name and a value");
+        }
+
+        Object[] arguments = new Object[keyValues.length >> 1];
+        for(int i = 0; i < arguments.length; i++){
+            arguments[i] = keyValues[2 * i + 1];
+            MDC.put((String) keyValues[2 * i], String.valueOf(arguments[i]));
+        }
+        MDC.put("event", name);
+
+        try{
+            logger.info(message, arguments);
+        }
+        finally {
+            for(int i = 0; i < arguments.length; i++){
+                MDC.remove((String) keyValues[2 * i]);
+            }
+            MDC.remove("event");
+        }
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public double getRate(){
+        return rate;
+    }
+
+    void setRate(double rate){
+        this.rate = rate;
+    }
+}
@@ -0,0 +1,65 @@
+package cloudcode.logging;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*Diagnostic events of the hot paths, grouped in categories that are sampled independently. The categories are static like the code that
+logs them, and configure() sets their rates from a list of category=rate pairs (a rate is the fraction of the events that are logged, 0 turns
+the category off and 1 logs all of them). The events go through the asynchronous appender of logback-spring.xml, so logging one is a copy into
+its queue, and they're dropped when the queue is full instead of blocking the request.*/
+public final class EventLog {
+
+    public static final double DEFAULT_RATE = 0.01;
+
+    private static final Map<String, EventCategory> categories = new ConcurrentHashMap<>();
+    private static volatile double defaultRate = DEFAULT_RATE;
+
+    private EventLog(){
+    }
+
+    //Events are logged at INFO by the logger cloudcode.events.<name>, so its level can still turn a category off
+    public static EventCategory category(String name){
+        return categories.computeIfAbsent(name, key -> new EventCategory(key, defaultRate));
+    }
+
+    //The categories not in the list get the rate of "default", or DEFAULT_RATE if there's none either
+    public static synchronized void configure(String sampling){
+        Map<String, Double> rates = parse(sampling);
+        defaultRate = rates.getOrDefault("default", DEFAULT_RATE);
+
+        for(EventCategory category : categories.values()){
+            category.setRate(rates.getOrDefault(category.getName(), defaultRate));
+        }
+        rates.forEach((name, rate) -> {
+            if(!name.equals("default")){
+                category(name).setRate(rate);
+            }
+        });
+    }
+
+    private static Map<String, Double> parse(String sampling){
+        Map<String, Double> rates = new HashMap<>();
+        if(sampling == null){
+            return rates;
+        }
+
+        for(String entry : sampling.split(",")){
+            if(entry.isBlank()){
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if(separator < 0){
+                throw new IllegalArgumentException("The sampling of a category has to be category=rate: " + entry.trim());
+            }
+
+            String name = entry.substring(0, separator).trim();
+            double rate = Double.parseDouble(entry.substring(separator + 1).trim());
+            if(name.isEmpty() || !(rate >= 0.0 && rate <= 1.0)){
+                throw new IllegalArgumentException("The sampling rate of a category has to be between 0 and 1: " + entry.trim());
+            }
+            rates.put(name, rate);
+        }
+        return rates;
+    }
+}
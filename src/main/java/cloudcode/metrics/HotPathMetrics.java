@@ -0,0 +1,97 @@
+package cloudcode.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/*Timers of the request hot paths. They're static like the functions they time, so recording is a field read and a Timer.record with the
+nanoseconds measured by the caller: no tags looked up, no lambdas and no samples, nothing allocated per request. Until install() binds them to
+a registry (and in benchmarks and tests that never do) recording does nothing.*/
+public final class HotPathMetrics {
+
+    private static volatile MeterRegistry registry;
+    private static volatile Timer location;
+    private static volatile Timer message;
+    private static volatile Timer topSecretBinding;
+    private static volatile Timer splitBinding;
+    private static volatile Timer topSecretRequest;
+    private static volatile Timer splitRequest;
+    private static volatile Timer splitSessionGap;
+
+    private HotPathMetrics(){
+    }
+
+    public static void install(MeterRegistry registry){
+        HotPathMetrics.registry = registry;
+        location = timer("topsecret.location", "GetLocation, any amount of satellites", Duration.ofNanos(500), Duration.ofMillis(50)).register(registry);
+        message = timer("topsecret.message", "GetMessage", Duration.ofNanos(500), Duration.ofMillis(50)).register(registry);
+        topSecretBinding = timer("topsecret.binding", "Reading the body into the entities", Duration.ofNanos(500), Duration.ofMillis(50))
+                .tag("endpoint", "topsecret").register(registry);
+        splitBinding = timer("topsecret.binding", "Reading the body into the entities", Duration.ofNanos(500), Duration.ofMillis(50))
+                .tag("endpoint", "topsecret_split").register(registry);
+        topSecretRequest = timer("topsecret.request", "Whole request in the controller, until the response is ready", Duration.ofNanos(1000), Duration.ofSeconds(60))
+                .tag("endpoint", "topsecret").register(registry);
+        splitRequest = timer("topsecret.request", "Whole request in the controller, until the response is ready", Duration.ofNanos(1000), Duration.ofSeconds(60))
+                .tag("endpoint", "topsecret_split").register(registry);
+        splitSessionGap = timer("topsecret.split.session.gap", "Time from the first to the last fragment of a completed split session",
+                                Duration.ofMillis(1), Duration.ofSeconds(60)).register(registry);
+    }
+
+    /*Timers can't be cleared, so they're removed from the registry and registered again empty. It's meant for the warm-up, while the instance
+    refuses traffic: a request recorded in between lands on a removed timer and is lost.*/
+    public static void reset(){
+        MeterRegistry installed = registry;
+        if(installed == null){
+            return;
+        }
+
+        for(Timer timer : new Timer[]{location, message, topSecretBinding, splitBinding, topSecretRequest, splitRequest, splitSessionGap}){
+            installed.remove(timer);
+        }
+        install(installed);
+    }
+
+    public static void recordLocation(long nanos){
+        record(location, nanos);
+    }
+
+    public static void recordMessage(long nanos){
+        record(message, nanos);
+    }
+
+    public static void recordTopSecretBinding(long nanos){
+        record(topSecretBinding, nanos);
+    }
+
+    public static void recordSplitBinding(long nanos){
+        record(splitBinding, nanos);
+    }
+
+    public static void recordTopSecretRequest(long nanos){
+        record(topSecretRequest, nanos);
+    }
+
+    public static void recordSplitRequest(long nanos){
+        record(splitRequest, nanos);
+    }
+
+    public static void recordSplitSessionGap(long millis){
+        Timer timer = splitSessionGap;
+        if(timer != null){
+            timer.record(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void record(Timer timer, long nanos){
+        if(timer != null){
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    //Fixed buckets between the expected bounds, so Prometheus can aggregate the quantiles across instances
+    private static Timer.Builder timer(String name, String description, Duration min, Duration max){
+        return Timer.builder(name).description(description).publishPercentileHistogram().minimumExpectedValue(min).maximumExpectedValue(max);
+    }
+}
@@ -0,0 +1,97 @@
+package cloudcode.metrics;
+
+import cloudcode.admission.AdmissionGate;
+import cloudcode.concurrent.HashedWheelTimer;
+import cloudcode.services.BatchTransmissionsProcessorService;
+import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/*Meters scraped from /actuator/prometheus. The hot path timers are recorded by the code they time, everything else here is read from the
+counters the services already keep when the registry is scraped, so it costs nothing per request.*/
+@Configuration
+public class MetricsConfiguration {
+
+  @Bean
+  public MeterBinder hotPathMeters() {
+    return HotPathMetrics::install;
+  }
+
+  @Bean
+  public MeterBinder splitMeters(SplitSatelliteMessagesProcessorService service) {
+    return registry -> {
+      Gauge.builder("topsecret.split.sessions.open", service, SplitSatelliteMessagesProcessorService::getOpenSessions)
+              .description("Split sessions waiting for fragments on this instance").register(registry);
+      Gauge.builder("topsecret.split.sessions.budget", service, s -> s.getMetrics().getMaxSessions())
+              .description("Most split sessions that can be pending at once").register(registry);
+
+      FunctionCounter.builder("topsecret.split.sessions", service, s -> s.getMetrics().getCompleted())
+              .description("Split sessions closed").tag("outcome", "completed").register(registry);
+      FunctionCounter.builder("topsecret.split.sessions", service, s -> s.getMetrics().getCompletedEarly())
+              .description("Split sessions closed").tag("outcome", "early").register(registry);
+      FunctionCounter.builder("topsecret.split.sessions", service, s -> s.getMetrics().getExpired())
+              .description("Split sessions closed").tag("outcome", "expired").register(registry);
+      FunctionCounter.builder("topsecret.split.fragments.shed", service, s -> s.getMetrics().getShedFragments())
+              .description("Fragments rejected because the pending session budget was spent").register(registry);
+      FunctionCounter.builder("topsecret.split.fragments.late", service, s -> s.getMetrics().getLateFragments())
+              .description("Fragments answered by a session that had completed early").register(registry);
+    };
+  }
+
+  @Bean
+  public MeterBinder admissionMeters(List<AdmissionGate> admissionGates) {
+    return registry -> {
+      for(AdmissionGate gate : admissionGates){
+        FunctionCounter.builder("topsecret.admission.admitted", gate, g -> g.getMetrics().getAdmitted())
+                .tag("gate", gate.getName()).register(registry);
+        FunctionCounter.builder("topsecret.admission.shed", gate, g -> g.getMetrics().getShedRateLimited())
+                .tag("gate", gate.getName()).tag("reason", "rate_limited").register(registry);
+        FunctionCounter.builder("topsecret.admission.shed", gate, g -> g.getMetrics().getShedBulkheadFull())
+                .tag("gate", gate.getName()).tag("reason", "bulkhead_full").register(registry);
+        Gauge.builder("topsecret.admission.inflight", gate, g -> g.getMetrics().getInFlight())
+                .tag("gate", gate.getName()).register(registry);
+      }
+    };
+  }
+
+  @Bean
+  public MeterBinder executorMeters(HashedWheelTimer splitSessionTimer, SplitSatelliteMessagesProcessorService splitService,
+                                    BatchTransmissionsProcessorService batchService) {
+    return registry -> {
+      Gauge.builder("topsecret.executor.queued", splitSessionTimer, HashedWheelTimer::getPendingTimeouts)
+              .description("Tasks waiting in the executor").tag("executor", "timer").register(registry);
+      Gauge.builder("topsecret.executor.queued", splitService, SplitSatelliteMessagesProcessorService::getStorePollQueueDepth)
+              .description("Tasks waiting in the executor").tag("executor", "store").register(registry);
+      Gauge.builder("topsecret.executor.queued", batchService, BatchTransmissionsProcessorService::getQueuedTasks)
+              .description("Tasks waiting in the executor").tag("executor", "batch").register(registry);
+    };
+  }
+
+  //Room left in the queue of the asynchronous appender, the events that arrive once it's full are dropped
+  @Bean
+  public MeterBinder loggingMeters() {
+    return registry -> {
+      if(!(LoggerFactory.getILoggerFactory() instanceof LoggerContext)){
+        return;
+      }
+      LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+      Appender<ILoggingEvent> appender = context.getLogger(Logger.ROOT_LOGGER_NAME).getAppender("ASYNC_JSON");
+      if(appender instanceof AsyncAppender){
+        Gauge.builder("topsecret.logging.queue.remaining", (AsyncAppender) appender, AsyncAppender::getRemainingCapacity)
+                .description("Room left in the queue of the asynchronous log appender").register(registry);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,99 @@
+package cloudcode.parsers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/*Splits an input stream in lines reusing the same buffers, so reading a stream of any length takes as much memory as its longest line up to
+maxLineLength. Longer lines are read until their end but only their first maxLineLength bytes are kept.*/
+public final class LineReader {
+
+    private final InputStream input;
+    private final byte[] readBuffer;
+    private int position;
+    private int limit;
+
+    private final int maxLineLength;
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private boolean truncated;
+
+    public LineReader(InputStream input, int bufferSize, int maxLineLength){
+        this.input = input;
+        this.readBuffer = new byte[bufferSize];
+        this.maxLineLength = maxLineLength;
+    }
+
+    //Returns false at the end of the input, the line is in getLine() without its line terminator
+    public boolean nextLine() throws IOException {
+        lineLength = 0;
+        truncated = false;
+        boolean read = false;
+
+        while(true){
+            if(position == limit){
+                position = 0;
+                limit = Math.max(input.read(readBuffer), 0);
+                if(limit == 0){
+                    return read;
+                }
+            }
+            read = true;
+
+            int start = position;
+            while(position < limit && readBuffer[position] != '\n'){
+                position++;
+            }
+            append(start, position - start);
+
+            if(position < limit){
+                position++;
+                if(lineLength > 0 && line[lineLength - 1] == '\r'){
+                    lineLength--;
+                }
+                return true;
+            }
+        }
+    }
+
+    //Whether there's input that can be read without blocking, when there isn't the caller should flush whatever it's answering
+    public boolean hasAvailableInput() throws IOException {
+        return position < limit || input.available() > 0;
+    }
+
+    public byte[] getLine() {
+        return line;
+    }
+
+    public int getLineLength() {
+        return lineLength;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public boolean isBlank() {
+        for(int i = 0; i < lineLength; i++){
+            if(line[i] != ' ' && line[i] != '\t' && line[i] != '\r'){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void append(int start, int length){
+        int kept = Math.min(length, maxLineLength - lineLength);
+        if(kept < length){
+            truncated = true;
+        }
+        if(kept <= 0){
+            return;
+        }
+        if(lineLength + kept > line.length){
+            line = Arrays.copyOf(line, Math.min(maxLineLength, Math.max(lineLength + kept, line.length << 1)));
+        }
+        System.arraycopy(readBuffer, start, line, lineLength, kept);
+        lineLength += kept;
+    }
+}
@@ -0,0 +1,65 @@
+package cloudcode.parsers;
+
+import cloudcode.entities.Constellation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*Readings of a /topsecret request as the parser leaves them: the distances are stored in a slot per satellite ID of the constellation the names
+were validated against, the messages in arrival order. It's mutable so a thread can reuse the same instance for every request.*/
+public final class Transmission {
+
+    private Constellation constellation;
+    private double[] distances = new double[8];
+    private int[] satelliteIds = new int[8];
+    private final List<String[]> messages = new ArrayList<>(8);
+    private int count;
+
+    //Empties the transmission and sizes the slots for the given constellation
+    void reset(Constellation constellation){
+        this.constellation = constellation;
+        this.count = 0;
+        this.messages.clear();
+
+        if(distances.length < constellation.size()){
+            distances = new double[constellation.size()];
+            satelliteIds = new int[constellation.size()];
+        }
+    }
+
+    //Returns false if the satellite already sent its reading
+    boolean add(int satelliteId, double distance, String[] message){
+        for(int i = 0; i < count; i++){
+            if(satelliteIds[i] == satelliteId){
+                return false;
+            }
+        }
+
+        satelliteIds[count++] = satelliteId;
+        distances[satelliteId] = distance;
+        messages.add(message);
+        return true;
+    }
+
+    public Constellation getConstellation() {
+        return constellation;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    //IDs of the satellites that sent a reading, only the first getCount() are valid
+    public int[] getSatelliteIds() {
+        return satelliteIds;
+    }
+
+    //Indexed by satellite ID, only the slots of getSatelliteIds() are valid
+    public double[] getDistances() {
+        return distances;
+    }
+
+    public List<String[]> getMessages() {
+        return messages;
+    }
+}
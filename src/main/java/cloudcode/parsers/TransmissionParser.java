@@ -0,0 +1,142 @@
+package cloudcode.parsers;
+
+import cloudcode.entities.Constellation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.boot.json.JsonParseException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*Reads a /topsecret payload in a single pass over the parser's tokens, with the same rules RequestObject and SatelliteMessage apply when they're
+bound: 3 or more readings of different satellites, each one with its name, distance and a non empty message, and no unknown properties.
+Names are looked up in the constellation straight from the parser's buffer. A parser isn't thread-safe, every thread keeps and reuses its own.*/
+public final class TransmissionParser {
+
+    private static final String SATELLITES = "satellites";
+    private static final String NAME = "name";
+    private static final String DISTANCE = "distance";
+    private static final String MESSAGE = "message";
+
+    private final List<String> words = new ArrayList<>(16);
+
+    //Throws JsonParseException if the payload isn't a valid transmission and IOException if it isn't JSON at all
+    public Transmission parse(JsonParser parser, Transmission transmission) throws IOException {
+        parser.nextToken();
+        return parseCurrent(parser, transmission);
+    }
+
+    //Same as parse but starting from the parser's current token, for transmissions that are part of a bigger document
+    public Transmission parseCurrent(JsonParser parser, Transmission transmission) throws IOException {
+        transmission.reset(Constellation.current());
+        boolean satellites = false;
+
+        expect(parser.currentToken(), JsonToken.START_OBJECT);
+
+        while(parser.nextToken() == JsonToken.FIELD_NAME){
+            if(!SATELLITES.equals(parser.getCurrentName()) || satellites){
+                throw new JsonParseException();
+            }
+            parseSatellites(parser, transmission);
+            satellites = true;
+        }
+
+        expect(parser.currentToken(), JsonToken.END_OBJECT);
+
+        if(!satellites || transmission.getCount() < 3){
+            throw new JsonParseException();
+        }
+
+        return transmission;
+    }
+
+    private void parseSatellites(JsonParser parser, Transmission transmission) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_ARRAY);
+
+        while(parser.nextToken() == JsonToken.START_OBJECT){
+            parseSatellite(parser, transmission);
+        }
+
+        expect(parser.currentToken(), JsonToken.END_ARRAY);
+    }
+
+    private void parseSatellite(JsonParser parser, Transmission transmission) throws IOException {
+        Constellation constellation = transmission.getConstellation();
+        int satelliteId = -1;
+        double distance = Double.NaN;
+        boolean hasDistance = false;
+        String[] message = null;
+
+        while(parser.nextToken() == JsonToken.FIELD_NAME){
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if(NAME.equals(field)){
+                expect(value, JsonToken.VALUE_STRING);
+                satelliteId = constellation.indexOf(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                if(satelliteId < 0){
+                    throw new JsonParseException();
+                }
+            }
+            else if(DISTANCE.equals(field)){
+                distance = parseDistance(parser, value);
+                hasDistance = true;
+            }
+            else if(MESSAGE.equals(field)){
+                message = parseMessage(parser, value);
+            }
+            else throw new JsonParseException();
+        }
+
+        expect(parser.currentToken(), JsonToken.END_OBJECT);
+
+        if(satelliteId < 0 || !hasDistance || message == null || !transmission.add(satelliteId, distance, message)){
+            throw new JsonParseException();
+        }
+    }
+
+    //Numbers in strings are accepted as well, as data binding does
+    private static double parseDistance(JsonParser parser, JsonToken value) throws IOException {
+        if(value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT){
+            return parser.getDoubleValue();
+        }
+        if(value == JsonToken.VALUE_STRING){
+            try{
+                return Double.parseDouble(parser.getText().trim());
+            }
+            catch (NumberFormatException e){
+                throw new JsonParseException(e);
+            }
+        }
+        throw new JsonParseException();
+    }
+
+    private String[] parseMessage(JsonParser parser, JsonToken value) throws IOException {
+        expect(value, JsonToken.START_ARRAY);
+        words.clear();
+
+        JsonToken token;
+        while((token = parser.nextToken()) != JsonToken.END_ARRAY){
+            if(token == JsonToken.VALUE_NULL){
+                words.add(null);
+            }
+            else if(token != null && token.isScalarValue()){
+                words.add(parser.getValueAsString());
+            }
+            else throw new JsonParseException();
+        }
+
+        if(words.isEmpty()){
+            throw new JsonParseException();
+        }
+
+        return words.toArray(new String[0]);
+    }
+
+    private static void expect(JsonToken token, JsonToken expected){
+        if(token != expected){
+            throw new JsonParseException();
+        }
+    }
+}
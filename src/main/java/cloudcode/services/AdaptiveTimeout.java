@@ -0,0 +1,105 @@
+package cloudcode.services;
+
+import cloudcode.concurrent.StreamingHistogram;
+import cloudcode.entities.HistogramMetrics;
+import cloudcode.entities.SplitTimeoutMetrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*Deadline of the new split sessions, learned from how long the fragments of the previous ones took to arrive. It keeps a histogram of the gap
+between the first and the last fragment of every session (overall) and of the delay of each satellite's fragment after the first one, and
+the deadline is the configured percentile of the overall one within [min, max]. Until there're enough samples, or when it's disabled, it's
+the fixed timeout. The deadline is only recomputed on refresh(), so opening a session just reads a field.*/
+public final class AdaptiveTimeout {
+
+    private final boolean enabled;
+    private final long defaultMillis;
+    private final long minMillis;
+    private final long maxMillis;
+    private final double percentile;
+    private final long minSamples;
+
+    private final StreamingHistogram overall = new StreamingHistogram();
+    private final ConcurrentMap<String, StreamingHistogram> satellites = new ConcurrentHashMap<>();
+
+    private volatile long timeoutMillis;
+    private volatile long typicalGapMillis = -1L;
+
+    public AdaptiveTimeout(boolean enabled, long defaultMillis, long minMillis, long maxMillis, double percentile, long minSamples){
+        if(enabled && (minMillis <= 0 || maxMillis < minMillis)){
+            throw new IllegalArgumentException("The adaptive timeout bounds must be positive and min can't be above max");
+        }
+        if(enabled && (percentile <= 0.0 || percentile > 100.0)){
+            throw new IllegalArgumentException("The adaptive timeout percentile must be in (0, 100]");
+        }
+
+        this.enabled = enabled;
+        this.defaultMillis = defaultMillis;
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.timeoutMillis = defaultMillis;
+    }
+
+    public long getTimeoutMillis(){
+        return timeoutMillis;
+    }
+
+    //Median gap between the first and the last fragment as of the last refresh, i.e. how long a session usually holds its slot. -1 if unknown
+    public long getTypicalGapMillis(){
+        return typicalGapMillis;
+    }
+
+    //Delay of a satellite's fragment after the first fragment of its session
+    public void recordFragment(String satellite, long delayMillis){
+        satellites.computeIfAbsent(satellite, name -> new StreamingHistogram()).record(delayMillis);
+    }
+
+    public void recordCompleted(long gapMillis){
+        overall.record(gapMillis);
+    }
+
+    /*We never see how long an expired session would have needed, counting it as twice its wait lets a deadline that's too short grow back
+    instead of the expirations pulling the percentile down.*/
+    public void recordExpired(long waitedMillis){
+        overall.record(2 * waitedMillis);
+    }
+
+    public void refresh(){
+        typicalGapMillis = overall.getPercentile(50.0);
+
+        if(!enabled || overall.getCount() < minSamples){
+            timeoutMillis = defaultMillis;
+            return;
+        }
+        timeoutMillis = Math.min(Math.max(overall.getPercentile(percentile), minMillis), maxMillis);
+    }
+
+    //Halves the weight of everything recorded so far
+    public void decay(){
+        overall.decay();
+        for(StreamingHistogram histogram : satellites.values()){
+            histogram.decay();
+        }
+    }
+
+    //Forgets every gap recorded so far, the deadline goes back to the fixed timeout until there're enough samples again
+    public void clear(){
+        overall.clear();
+        satellites.clear();
+        refresh();
+    }
+
+    public SplitTimeoutMetrics getMetrics(){
+        Map<String, HistogramMetrics> bySatellite = new TreeMap<>();
+        for(Map.Entry<String, StreamingHistogram> entry : satellites.entrySet()){
+            bySatellite.put(entry.getKey(), HistogramMetrics.of(entry.getValue()));
+        }
+
+        return new SplitTimeoutMetrics(enabled, timeoutMillis, percentile, minMillis, maxMillis, HistogramMetrics.of(overall), bySatellite);
+    }
+}
@@ -0,0 +1,112 @@
+package cloudcode.services;
+
+import cloudcode.BasicFunctions;
+import cloudcode.entities.BatchResponseEntry;
+import cloudcode.exceptions.LocationProcessingException;
+import cloudcode.exceptions.MessageProcessingException;
+import cloudcode.parsers.Transmission;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*Solves the transmissions of a /topsecret/batch request across a fork-join pool with the same functions /topsecret uses. Every transmission gets
+its own entry in the input order, so a transmission that can't be solved doesn't fail the rest of the batch.*/
+@Service
+public class BatchTransmissionsProcessorService {
+
+    //Below this amount of transmissions a task solves them instead of splitting them further
+    private static final int MIN_CHUNK = 64;
+
+    private final ForkJoinPool pool;
+    private final BatchResponseEntry invalidJsonEntry;
+    private final BatchResponseEntry insufficientDataEntry;
+
+    @Value("${topsecret.batch.maxTransmissions}")
+    private int maxTransmissions;
+
+    //A parallelism of 0 uses a worker per core
+    public BatchTransmissionsProcessorService(MessageSource messageSource, @Value("${topsecret.batch.parallelism}") int parallelism){
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.invalidJsonEntry = BatchResponseEntry.failed(HttpStatus.NOT_FOUND.value(), messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US));
+        this.insufficientDataEntry = BatchResponseEntry.failed(HttpStatus.NOT_FOUND.value(), messageSource.getMessage("INSUFFICIENT_DATA_MESSAGE", null, Locale.US));
+    }
+
+    public int getMaxTransmissions(){
+        return maxTransmissions;
+    }
+
+    //Chunks waiting for a worker of the pool, an estimate
+    public long getQueuedTasks(){
+        return pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+    }
+
+    //Null transmissions are the ones that weren't valid, their entry is the invalid JSON one
+    public BatchResponseEntry[] solve(Transmission[] transmissions, int count){
+        BatchResponseEntry[] results = new BatchResponseEntry[count];
+        Chunk chunk = new Chunk(transmissions, results, 0, count);
+
+        //Small batches are solved in the request thread, handing them to the pool would cost more than solving them
+        if(count <= MIN_CHUNK){
+            chunk.compute();
+        }
+        else{
+            pool.invoke(chunk);
+        }
+
+        return results;
+    }
+
+    //Solves a single transmission in the caller's thread, null is an invalid one as in the batches
+    public BatchResponseEntry solve(Transmission transmission){
+        if(transmission == null){
+            return invalidJsonEntry;
+        }
+
+        try{
+            return BatchResponseEntry.solved(BasicFunctions.GetLocation(transmission.getConstellation(), transmission.getSatelliteIds(), transmission.getDistances(), transmission.getCount()),
+                                             BasicFunctions.GetMessage(transmission.getMessages()));
+        }
+        catch (LocationProcessingException | MessageProcessingException e){
+            return insufficientDataEntry;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        pool.shutdown();
+    }
+
+    private final class Chunk extends RecursiveAction {
+
+        private final Transmission[] transmissions;
+        private final BatchResponseEntry[] results;
+        private final int from;
+        private final int to;
+
+        private Chunk(Transmission[] transmissions, BatchResponseEntry[] results, int from, int to){
+            this.transmissions = transmissions;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= MIN_CHUNK){
+                for(int i = from; i < to; i++){
+                    results[i] = solve(transmissions[i]);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new Chunk(transmissions, results, from, middle), new Chunk(transmissions, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package cloudcode.services;
+
+import cloudcode.solvers.LocationResult;
+
+/*Decides whether a split session can be answered before every satellite of the constellation sent its fragment. It's only asked once there
+are readings of 3 different satellites, with the least-squares estimate and the message merged from the fragments received so far. Two readings
+leave two candidate positions, so with the default 3 satellite constellation no session completes early, the policies only help larger ones.*/
+public interface CompletionPolicy {
+
+    //Name in splitSatelliteMessage.completion.policies and in the metrics
+    String getName();
+
+    boolean isSatisfied(LocationResult location, String[] message);
+
+    static CompletionPolicy forName(String name, double maxResidual){
+        switch (name){
+            case MessageResolvedPolicy.NAME:
+                return new MessageResolvedPolicy();
+            case LocationResidualPolicy.NAME:
+                return new LocationResidualPolicy(maxResidual);
+            default:
+                throw new IllegalArgumentException("Unknown split completion policy " + name);
+        }
+    }
+}
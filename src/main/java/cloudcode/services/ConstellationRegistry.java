@@ -0,0 +1,71 @@
+package cloudcode.services;
+
+import cloudcode.entities.Constellation;
+import cloudcode.solvers.MultilaterationSolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/*Loads the satellites from the configured location (or the resource packaged with the application when there's none) and installs them as
+the current constellation. A reload builds a whole new snapshot, so requests in flight keep using the one they were validated against and a
+broken configuration leaves the previous one in place.*/
+@Service
+public class ConstellationRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConstellationRegistry.class);
+    private final Resource location;
+    private final Resource resource;
+    private final double tolerance;
+    private final MultilaterationSolver multilaterationSolver;
+
+    public ConstellationRegistry(ResourceLoader resourceLoader, @Value("${constellation.location}") String location,
+                                 @Value("${constellation.resource}") Resource resource, @Value("${trilateration.tolerance}") double tolerance,
+                                 @Value("${multilateration.maxIterations}") int maxIterations, @Value("${multilateration.tolerance}") double multilaterationTolerance){
+        this.location = location.isEmpty() ? null : resourceLoader.getResource(location);
+        this.resource = resource;
+        this.tolerance = tolerance;
+        this.multilaterationSolver = new MultilaterationSolver(maxIterations, multilaterationTolerance);
+    }
+
+    @PostConstruct
+    public void initialize(){
+        reload();
+    }
+
+    //Throws IllegalArgumentException or UncheckedIOException if the configuration can't be read or isn't a valid constellation
+    public synchronized Constellation reload(){
+        Constellation constellation;
+        Resource resource = this.resource;
+
+        if(location != null){
+            if(location.exists()){
+                resource = location;
+            }
+            else{
+                logger.warn("The constellation location " + location.getDescription() + " doesn't exist, loading " + resource.getDescription());
+            }
+        }
+
+        try{
+            constellation = Constellation.load(resource.getInputStream(), tolerance, multilaterationSolver);
+        }
+        catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+
+        Constellation.install(constellation);
+        logger.info("Constellation loaded from " + resource.getDescription() + " with " + constellation.size() + " satellites");
+        return constellation;
+    }
+
+    public Constellation getConstellation(){
+        return Constellation.current();
+    }
+}
@@ -0,0 +1,25 @@
+package cloudcode.services;
+
+import cloudcode.solvers.LocationResult;
+
+//The location is complete once the readings received so far agree on a position, i.e. the root mean square residual is under the threshold
+public final class LocationResidualPolicy implements CompletionPolicy {
+
+    public static final String NAME = "location";
+
+    private final double maxResidual;
+
+    public LocationResidualPolicy(double maxResidual){
+        this.maxResidual = maxResidual;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isSatisfied(LocationResult location, String[] message) {
+        return location.getResidual() <= maxResidual;
+    }
+}
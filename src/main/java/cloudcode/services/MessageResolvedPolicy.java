@@ -0,0 +1,27 @@
+package cloudcode.services;
+
+import cloudcode.solvers.LocationResult;
+
+//The message is complete once every position has a single most voted word, a blank or tied position needs more fragments
+public final class MessageResolvedPolicy implements CompletionPolicy {
+
+    public static final String NAME = "message";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isSatisfied(LocationResult location, String[] message) {
+        if(message.length == 0){
+            return false;
+        }
+        for(String word : message){
+            if(word.isEmpty()){
+                return false;
+            }
+        }
+        return true;
+    }
+}
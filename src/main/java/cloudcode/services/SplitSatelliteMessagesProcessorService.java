@@ -1,115 +1,649 @@
 package cloudcode.services;
 
 import cloudcode.BasicFunctions;
+import cloudcode.admission.TooManyRequestsResponses;
+import cloudcode.concurrent.HashedWheelTimer;
+import cloudcode.entities.CompletionPolicyMetrics;
+import cloudcode.entities.Constellation;
+import cloudcode.entities.Location;
 import cloudcode.entities.RequestObject;
 import cloudcode.entities.ResponseObject;
 import cloudcode.entities.SatelliteMessage;
+import cloudcode.entities.SplitMetrics;
+import cloudcode.entities.SplitSessionEstimate;
+import cloudcode.entities.SplitTimeoutMetrics;
 import cloudcode.exceptions.LocationProcessingException;
 import cloudcode.exceptions.MessageProcessingException;
+import cloudcode.metrics.HotPathMetrics;
+import cloudcode.solvers.LocationResult;
+import cloudcode.solvers.PartialLocation;
+import cloudcode.store.FragmentStore;
+import cloudcode.store.FragmentStoreException;
+import cloudcode.store.FragmentWriteAheadLog;
+import cloudcode.store.JoinResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.json.JsonParseException;
 import org.springframework.context.MessageSource;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 @Service
 public class SplitSatelliteMessagesProcessorService {
 
     private static final Logger logger = LoggerFactory.getLogger(SplitSatelliteMessagesProcessorService.class);
-    private SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService;
-    private final List<SatelliteMessage> satelliteMessages = Collections.synchronizedList(new ArrayList<>());
-    private final MessageSource messageSource;
-    private CompletableFuture<ResponseEntity> task;
-    private CountDownLatch waitUntil3Messages;
+    public static final String DEFAULT_TRANSMISSION_ID = "default";
+    private final ConcurrentMap<String, SplitSession> sessions = new ConcurrentHashMap<>();
+    private final HashedWheelTimer splitSessionTimer;
+
+    //With a shared store the fragments are kept there instead of in the sessions, and the waiting requests poll it for the outcome
+    private final FragmentStore fragmentStore;
+    private ThreadPoolExecutor storePollers;
+
+    //Requests of this instance waiting for a session of the store, by transmission and session ID. They share a single poll, and when this
+    //instance brings the last fragment they get the answer right away
+    private final ConcurrentMap<String, CompletableFuture<ResponseEntity>> storeWaiters = new ConcurrentHashMap<>();
+
+    //The fragments of the local sessions are logged so they survive a restart of the instance, it's null when the log is disabled
+    private final FragmentWriteAheadLog writeAheadLog;
+
+    //Policies that let a session complete before every satellite sent its fragment, none means waiting for all of them
+    private List<TrackedPolicy> completionPolicies = Collections.emptyList();
+
+    //Sessions completed early stay here until their timeout, so the fragments that arrive late get the same answer instead of opening a new session
+    private final ConcurrentMap<String, SplitSession> completedEarly = new ConcurrentHashMap<>();
+
+    private final LongAdder completedSessions = new LongAdder();
+    private final LongAdder earlySessions = new LongAdder();
+    private final LongAdder expiredSessions = new LongAdder();
+    private final LongAdder lateFragments = new LongAdder();
+    private final LongAdder shedFragments = new LongAdder();
+
+    //Deadline of the new local sessions, learned from the arrival gaps of the previous ones when it's enabled
+    private AdaptiveTimeout adaptiveTimeout;
+    private volatile boolean stopped;
+
+    //The error responses never change, they're built once and shared by every session
+    private final ResponseEntity<String> invalidJsonResponse;
+    private final ResponseEntity<String> insufficientDataResponse;
+    private final ResponseEntity<String> transmissionCompleteResponse;
+    private final ResponseEntity<String> storeUnavailableResponse;
+    private final ResponseEntity<String> storeTimeoutResponse;
+    private final ResponseEntity<String> oversizedFragmentResponse;
+    private final TooManyRequestsResponses tooManyRequestsResponses;
 
     @Value("#{ T(java.lang.Long).parseLong('${splitSatelliteMessage.timeout}')}")
     private Long timeout;
 
-    public SplitSatelliteMessagesProcessorService(MessageSource messageSource){
-        this.messageSource = messageSource;
+    @Value("${splitSatelliteMessage.maxSessions}")
+    private int maxSessions;
+
+    @Value("${splitSatelliteMessage.store.pollMillis}")
+    private long pollMillis;
+
+    //Pending fragments are only acknowledged once the log is on disk, instead of within the next flush
+    @Value("${splitSatelliteMessage.wal.sync}")
+    private boolean syncWriteAheadLog;
+
+    @Value("${splitSatelliteMessage.completion.policies}")
+    private String completionPolicyNames;
+
+    @Value("${splitSatelliteMessage.completion.maxResidual}")
+    private double maxResidual;
+
+    @Value("${splitSatelliteMessage.adaptiveTimeout.enabled}")
+    private boolean adaptiveTimeoutEnabled;
+
+    @Value("${splitSatelliteMessage.adaptiveTimeout.percentile}")
+    private double adaptiveTimeoutPercentile;
+
+    @Value("${splitSatelliteMessage.adaptiveTimeout.minMillis}")
+    private long adaptiveTimeoutMinMillis;
+
+    @Value("${splitSatelliteMessage.adaptiveTimeout.maxMillis}")
+    private long adaptiveTimeoutMaxMillis;
+
+    @Value("${splitSatelliteMessage.adaptiveTimeout.minSamples}")
+    private long adaptiveTimeoutMinSamples;
+
+    //Every half-life the weight of the gaps recorded so far is halved, so the deadline follows how the links behave lately
+    @Value("${splitSatelliteMessage.adaptiveTimeout.halfLifeSeconds}")
+    private long adaptiveTimeoutHalfLife;
+
+    public SplitSatelliteMessagesProcessorService(MessageSource messageSource, TooManyRequestsResponses tooManyRequestsResponses, HashedWheelTimer splitSessionTimer,
+                                                  Optional<FragmentStore> fragmentStore, Optional<FragmentWriteAheadLog> writeAheadLog){
+        this.splitSessionTimer = splitSessionTimer;
+        this.fragmentStore = fragmentStore.orElse(null);
+        this.writeAheadLog = this.fragmentStore == null ? writeAheadLog.orElse(null) : null;
+        this.invalidJsonResponse = ResponseEntity.status(HttpStatus.BAD_REQUEST).body(messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US));
+        this.insufficientDataResponse = ResponseEntity.status(HttpStatus.BAD_REQUEST).body(messageSource.getMessage("INSUFFICIENT_DATA_MESSAGE", null, Locale.US));
+        this.transmissionCompleteResponse = ResponseEntity.status(HttpStatus.CONFLICT).body(messageSource.getMessage("TRANSMISSION_COMPLETE_MESSAGE", null, Locale.US));
+        this.storeUnavailableResponse = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(messageSource.getMessage("FRAGMENT_STORE_UNAVAILABLE_MESSAGE", null, Locale.US));
+        this.storeTimeoutResponse = ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(messageSource.getMessage("FRAGMENT_STORE_TIMEOUT_MESSAGE", null, Locale.US));
+        this.oversizedFragmentResponse = ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(messageSource.getMessage("OVERSIZED_FRAGMENT_MESSAGE", null, Locale.US));
+        this.tooManyRequestsResponses = tooManyRequestsResponses;
+    }
+
+    @PostConstruct
+    public void start(){
+        configureStorePollers();
+        configureCompletionPolicies();
+        configureAdaptiveTimeout();
+        recover();
+    }
+
+    /*Store calls may block on the network, so they don't run on the timer thread that every session's expiry depends on. Each waiting session
+    has at most one poll queued, so the queue is bounded by the pending session budget, and addToStore sheds new fragments while it's full.*/
+    private void configureStorePollers(){
+        if(fragmentStore == null){
+            return;
+        }
+        int pollers = Math.max(2, Runtime.getRuntime().availableProcessors());
+        storePollers = new ThreadPoolExecutor(pollers, pollers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(maxSessions, 1)), runnable -> {
+            Thread thread = new Thread(runnable, "SplitJoiner-store");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private void configureAdaptiveTimeout(){
+        adaptiveTimeout = new AdaptiveTimeout(adaptiveTimeoutEnabled, TimeUnit.SECONDS.toMillis(timeout), adaptiveTimeoutMinMillis, adaptiveTimeoutMaxMillis,
+                                              adaptiveTimeoutPercentile, adaptiveTimeoutMinSamples);
+        scheduleAdaptiveTimeoutRefresh(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(adaptiveTimeoutHalfLife));
+    }
+
+    //Recomputed once a second on the timer thread, it's a walk over a few hundred counters
+    private void scheduleAdaptiveTimeoutRefresh(long nextDecay){
+        if(stopped){
+            return;
+        }
+        splitSessionTimer.newTimeout(() -> {
+            long decayAt = nextDecay;
+            if(System.currentTimeMillis() >= decayAt){
+                adaptiveTimeout.decay();
+                decayAt += TimeUnit.SECONDS.toMillis(adaptiveTimeoutHalfLife);
+            }
+            adaptiveTimeout.refresh();
+            scheduleAdaptiveTimeoutRefresh(decayAt);
+        }, 1, TimeUnit.SECONDS);
+    }
+
+    private void configureCompletionPolicies(){
+        List<TrackedPolicy> policies = new ArrayList<>();
+        for(String name : completionPolicyNames.split(",")){
+            if(!name.isBlank()){
+                policies.add(new TrackedPolicy(CompletionPolicy.forName(name.trim(), maxResidual)));
+            }
+        }
+        completionPolicies = policies;
+
+        //The policies need readings of 3 satellites and a session that has them is already complete
+        if(!policies.isEmpty() && Constellation.current().size() <= 3){
+            logger.warn("Split completion policies are configured, but with " + Constellation.current().size() + " satellites no session can complete early");
+        }
     }
 
-    @Lazy
-    @Autowired
-    public void setSplitJoinerService(SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService) {
-        this.splitSatelliteMessagesProcessorService = splitSatelliteMessagesProcessorService;
+    //Rebuilds the sessions that were still pending when the previous run stopped, nobody waits for them but the next fragments complete them
+    private void recover(){
+        if(writeAheadLog == null){
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        for(FragmentWriteAheadLog.RecoveredSession recovered : writeAheadLog.recover()){
+            long remaining = recovered.getOpenedAt() + TimeUnit.SECONDS.toMillis(timeout) - now;
+            if(remaining <= 0 || sessions.size() >= maxSessions){
+                continue;
+            }
+
+            SplitSession session = new SplitSession(recovered.getTransmissionId());
+            session.setOpenedAt(recovered.getOpenedAt());
+            synchronized (session){
+                for(SatelliteMessage fragment : recovered.getFragments()){
+                    session.getSatelliteMessages().add(fragment);
+                    session.getPartialLocation().add(fragment.getConstellation(), fragment.getSatelliteId(), fragment.getDistance());
+                }
+                session.setTimeout(splitSessionTimer.newTimeout(() -> expire(session), remaining, TimeUnit.MILLISECONDS));
+            }
+            sessions.put(recovered.getTransmissionId(), session);
+        }
     }
 
     public CompletableFuture<ResponseEntity> addSatelliteMessage(SatelliteMessage message){
-        synchronized (satelliteMessages){
+        return addSatelliteMessage(DEFAULT_TRANSMISSION_ID, message);
+    }
+
+    public CompletableFuture<ResponseEntity> addSatelliteMessage(String transmissionId, SatelliteMessage message){
+        if(fragmentStore != null){
+            return addToStore(transmissionId, message);
+        }
 
-            if(satelliteMessages.size() == 0){
-                waitUntil3Messages = new CountDownLatch(1);
-                task = splitSatelliteMessagesProcessorService.execute();
+        while(true){
+            SplitSession answered = completedEarly.get(transmissionId);
+            if(answered != null){
+                CompletableFuture<ResponseEntity> response = answerLateFragment(answered, message);
+                if(response != null){
+                    return response;
+                }
             }
 
-/*If before adding a message there's 3 satelliteMessages already, it means that there're more than 3 simultaneous requests...something that
-should not happen since we've set a concurrency limit for 3 simultaneous requests per Google Cloud Run container instance but just in case.*/
-            if(satelliteMessages.size() == 3){
-                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body(messageSource.getMessage("EXCESSIVE_MESSAGES_TRY_AGAIN_LATER", null, Locale.US)));
+            //The size is just an estimate under contention, but that's enough to keep the table bounded
+            if(sessions.size() >= maxSessions && !sessions.containsKey(transmissionId)){
+                return CompletableFuture.completedFuture(shed());
             }
 
-            satelliteMessages.add(message);
+            SplitSession session = sessions.computeIfAbsent(transmissionId, SplitSession::new);
+            ResponseEntity response;
+            long logged = 0L;
+
+            synchronized (session){
+                //The session was completed and is being removed from the table, we retry with a fresh one
+                if(session.isClosed()){
+                    continue;
+                }
+
+                List<SatelliteMessage> satelliteMessages = session.getSatelliteMessages();
+
+                long now = System.currentTimeMillis();
+                if(satelliteMessages.size() == 0){
+                    session.setOpenedAt(now);
+                    session.setTimeout(splitSessionTimer.newTimeout(() -> expire(session), adaptiveTimeout.getTimeoutMillis(), TimeUnit.MILLISECONDS));
+                }
 
-            if(satelliteMessages.size() == 3){
-                waitUntil3Messages.countDown();
+                //The transmission is complete when every satellite of the constellation sent its fragment
+                int expected = message.getConstellation().size();
+
+/*If before adding a message there're all the satelliteMessages already, it means that there're more simultaneous requests for the same
+transmission than satellites...something that should not happen since every satellite sends its message only once but just in case.*/
+                if(satelliteMessages.size() >= expected){
+                    return CompletableFuture.completedFuture(transmissionCompleteResponse);
+                }
+
+                //Encoded before the session changes, a fragment the log can't take is still joined but won't survive a restart
+                FragmentWriteAheadLog.Record record = writeAheadLog != null && satelliteMessages.size() + 1 < expected ? writeAheadLog.encodeAdd(transmissionId, message) : null;
+
+                satelliteMessages.add(message);
+                session.getPartialLocation().add(message.getConstellation(), message.getSatelliteId(), message.getDistance());
+                adaptiveTimeout.recordFragment(message.getName(), now - session.getOpenedAt());
+
+                if(satelliteMessages.size() < expected){
+                    response = completionPolicies.isEmpty() ? null : tryCompleteEarly(session);
+
+                    //Appending is a copy into a mapped segment, it's the wait for the disk that we leave outside of the lock
+                    if(response == null && record != null){
+                        logged = writeAheadLog.append(record);
+                    }
+                }
+                else{
+                    //The last fragment arrived, the request thread that brought it solves the transmission
+                    response = close(session);
+                    completedSessions.increment();
+                    adaptiveTimeout.recordCompleted(now - session.getOpenedAt());
+                    HotPathMetrics.recordSplitSessionGap(now - session.getOpenedAt());
+                }
             }
 
-            return task;
+            if(response == null){
+                if(syncWriteAheadLog && logged > 0L){
+                    writeAheadLog.awaitFlushed(logged);
+                }
+                return session.getResult();
+            }
+
+            //Completing outside of the lock since the dependent stages write the responses of every waiting request
+            session.getResult().complete(response);
+            return session.getResult();
         }
     }
 
-    @Async
-    public CompletableFuture<ResponseEntity> execute(){
+    public int getOpenSessions(){
+        return sessions.size();
+    }
 
-        if(satelliteMessages.size() < 3){
-            try{
-                waitUntil3Messages.await(timeout, TimeUnit.SECONDS);
+    //Store polls waiting for a poller thread, 0 with the local sessions
+    public int getStorePollQueueDepth(){
+        return storePollers == null ? 0 : storePollers.getQueue().size();
+    }
+
+    public SplitMetrics getMetrics(){
+        List<CompletionPolicyMetrics> policies = new ArrayList<>(completionPolicies.size());
+        for(TrackedPolicy policy : completionPolicies){
+            policies.add(new CompletionPolicyMetrics(policy.policy.getName(), policy.evaluations.sum(), policy.hits.sum()));
+        }
+
+        return new SplitMetrics(sessions.size(), maxSessions, completedSessions.sum(), earlySessions.sum(), expiredSessions.sum(), lateFragments.sum(),
+                                shedFragments.sum(), policies);
+    }
+
+    public SplitTimeoutMetrics getTimeoutMetrics(){
+        return adaptiveTimeout.getMetrics();
+    }
+
+    //The sessions of the warm-up complete right away, their gaps say nothing about how long the satellites take
+    public void resetAdaptiveTimeout(){
+        adaptiveTimeout.clear();
+    }
+
+    //Same for the counters, /metrics/split and the meters read from them start from the first real fragment
+    public void resetMetrics(){
+        completedSessions.reset();
+        earlySessions.reset();
+        expiredSessions.reset();
+        lateFragments.reset();
+        shedFragments.reset();
+        for(TrackedPolicy policy : completionPolicies){
+            policy.evaluations.reset();
+            policy.hits.reset();
+        }
+    }
+
+    //Returns null if there's no pending session for the transmission on this instance
+    public SplitSessionEstimate getSessionEstimate(String transmissionId){
+        SplitSession session = sessions.get(transmissionId);
+        if(session == null){
+            return null;
+        }
+
+        String[] satellites;
+        List<String[]> fragments;
+        Location[] candidates;
+
+        synchronized (session){
+            if(session.isClosed()){
+                return null;
             }
-            catch (InterruptedException e){
-                e.printStackTrace();
+
+            List<SatelliteMessage> satelliteMessages = session.getSatelliteMessages();
+            satellites = new String[satelliteMessages.size()];
+            fragments = new ArrayList<>(satelliteMessages.size());
+            for(int i = 0; i < satellites.length; i++){
+                satellites[i] = satelliteMessages.get(i).getName();
+                fragments.add(satelliteMessages.get(i).getMessage());
             }
+
+            PartialLocation partialLocation = session.getPartialLocation();
+            candidates = new Location[partialLocation.getCandidateCount()];
+            for(int i = 0; i < candidates.length; i++){
+                candidates[i] = new Location(partialLocation.getCandidateX(i), partialLocation.getCandidateY(i));
+            }
+        }
+
+        //The fragments are immutable, so they're merged outside of the lock
+        String[] message;
+        try{
+            message = BasicFunctions.GetMessage(fragments);
+        }
+        catch (MessageProcessingException e){
+            message = new String[0];
+        }
+
+        return new SplitSessionEstimate(transmissionId, satellites, candidates, message);
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        stopped = true;
+        if(storePollers != null){
+            storePollers.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<ResponseEntity> addToStore(String transmissionId, SatelliteMessage message){
+        //Same pending session budget the local sessions have, and the pollers falling behind count as overload as well
+        if(storeWaiters.size() >= maxSessions || storePollers.getQueue().remainingCapacity() == 0){
+            return CompletableFuture.completedFuture(shed());
+        }
+
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(timeout);
+        JoinResult result;
+
+        try{
+            result = fragmentStore.add(transmissionId, message, message.getConstellation().size(), timeoutMillis);
+        }
+        catch (FragmentStoreException e){
+            logger.warn("Couldn't add a split fragment to the store", e);
+            return CompletableFuture.completedFuture(storeUnavailableResponse);
+        }
+        catch (IllegalArgumentException e){
+            return CompletableFuture.completedFuture(oversizedFragmentResponse);
+        }
+
+        String waiterKey = transmissionId + '#' + result.getSessionId();
+
+        switch (result.getStatus()){
+            case COMPLETE:
+            case EXPIRED:
+                ResponseEntity response = solveStored(result);
+                CompletableFuture<ResponseEntity> waiting = storeWaiters.remove(waiterKey);
+                if(waiting != null){
+                    waiting.complete(response);
+                }
+                return CompletableFuture.completedFuture(response);
+            case REJECTED:
+                return CompletableFuture.completedFuture(shed());
+            default:
+                //The fragment that completes the session may arrive at another instance, so we keep asking the store until it's closed
+                CompletableFuture<ResponseEntity> created = new CompletableFuture<>();
+                CompletableFuture<ResponseEntity> existing = storeWaiters.putIfAbsent(waiterKey, created);
+                if(existing != null){
+                    return existing;
+                }
+                schedulePoll(transmissionId, result.getSessionId(), System.currentTimeMillis() + timeoutMillis, created);
+                return created;
         }
+    }
 
-        //We're synchronized with the message list to prevent a consecutive request from adding a message until we clear the list first
-        synchronized (satelliteMessages){
+    //The timer only schedules the polls, they run on the store pollers. A poll that doesn't fit in their queue waits for the next tick
+    private void schedulePoll(String transmissionId, long sessionId, long deadline, CompletableFuture<ResponseEntity> response){
+        splitSessionTimer.newTimeout(() -> {
             try{
-                RequestObject req = new RequestObject(satelliteMessages.toArray(new SatelliteMessage[0]));
+                storePollers.execute(() -> poll(transmissionId, sessionId, deadline, response));
+            }
+            catch (RejectedExecutionException e){
+                if(!stopped){
+                    schedulePoll(transmissionId, sessionId, deadline, response);
+                }
+            }
+        }, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(String transmissionId, long sessionId, long deadline, CompletableFuture<ResponseEntity> response){
+        try{
+            JoinResult result = fragmentStore.poll(transmissionId, sessionId);
+
+            if(result.getStatus() != JoinResult.Status.PENDING){
+                storeWaiters.remove(transmissionId + '#' + sessionId, response);
+                response.complete(solveStored(result));
+                return;
+            }
+        }
+        catch (FragmentStoreException e){
+            //The store closes the session by itself, we only give up if it stays unreachable well past its deadline
+            if(System.currentTimeMillis() > deadline + TimeUnit.SECONDS.toMillis(timeout)){
+                logger.warn("Giving up on a split session the store didn't answer for", e);
+                storeWaiters.remove(transmissionId + '#' + sessionId, response);
+                response.complete(storeTimeoutResponse);
+                return;
+            }
+        }
+
+        schedulePoll(transmissionId, sessionId, deadline, response);
+    }
+
+    /*A 429 for a fragment we can't take now, usually because the pending session budget is used up. A slot frees up when a session
+    completes, so the client is told to come back after the usual length of a session, or the whole timeout if there's no history yet.*/
+    private ResponseEntity shed(){
+        shedFragments.increment();
+        long typicalGap = adaptiveTimeout.getTypicalGapMillis();
+        return tooManyRequestsResponses.retryAfterMillis(typicalGap >= 0 ? typicalGap : TimeUnit.SECONDS.toMillis(timeout));
+    }
+
+    //Runs on the timer thread when the fragments didn't arrive in time
+    private void expire(SplitSession session){
+        ResponseEntity response;
+
+        synchronized (session){
+            if(session.isClosed()){
+                return;
+            }
+            response = close(session);
+            expiredSessions.increment();
+            adaptiveTimeout.recordExpired(System.currentTimeMillis() - session.getOpenedAt());
+        }
+
+        session.getResult().complete(response);
+    }
+
+    //Must be called while synchronized with the session, so no consecutive request can add a message until it's closed
+    private ResponseEntity close(SplitSession session){
+        release(session);
+
+        return solve(session.getSatelliteMessages(), session.getPartialLocation());
+    }
 
+    //Must be called while synchronized with the session
+    private void release(SplitSession session){
+        session.close();
+        //Logged before the session leaves the table, so the records of a transmission ID's next session always come after
+        if(writeAheadLog != null){
+            writeAheadLog.appendClose(session.getTransmissionId());
+        }
+        sessions.remove(session.getTransmissionId(), session);
+    }
+
+    /*Must be called while synchronized with the session. Asks every policy (all of them, so each one's hit rate is right) whether the readings
+    of 3 or more satellites received so far are enough, and closes the session with their estimate if they all agree. Returns null otherwise.*/
+    private ResponseEntity tryCompleteEarly(SplitSession session){
+        List<SatelliteMessage> satelliteMessages = session.getSatelliteMessages();
+        if(satelliteMessages.size() < 3){
+            return null;
+        }
 
-                List<String[]> messages = Arrays.stream(req.getSatelliteMessages()).map(SatelliteMessage::getMessage).collect(Collectors.toList());
+        SatelliteMessage[] readings;
+        try{
+            readings = new RequestObject(satelliteMessages.toArray(new SatelliteMessage[0])).getSatelliteMessages();
+        }
+        catch (JsonParseException e){
+            //A repeated satellite, the session fails the same way once it's complete
+            return null;
+        }
+
+        LocationResult location = new LocationResult();
+        BasicFunctions.EstimateLocation(readings, location);
 
-                Double[] distances = Arrays.stream(req.getSatelliteMessages()).sorted(Comparator.comparing(SatelliteMessage::getName))
-                        .map(SatelliteMessage::getDistance).toArray(Double[]::new);
+        String[] message;
+        try{
+            message = BasicFunctions.GetMessage(satelliteMessages.stream().map(SatelliteMessage::getMessage).collect(Collectors.toList()));
+        }
+        catch (MessageProcessingException e){
+            message = new String[0];
+        }
 
-                //Clearing the list and returning just in case Google Cloud Run decides to reuse the container instance.
-                satelliteMessages.clear();
-                return CompletableFuture.completedFuture(new ResponseEntity<>(
-                        new ResponseObject(BasicFunctions.GetLocation(distances), BasicFunctions.GetMessage(messages)), HttpStatus.OK));
+        boolean satisfied = message.length > 0;
+        for(TrackedPolicy policy : completionPolicies){
+            policy.evaluations.increment();
+            if(policy.policy.isSatisfied(location, message)){
+                policy.hits.increment();
             }
-            catch (JsonParseException e) {
-                //Clearing the list and returning just in case Google Cloud Run decides to reuse the container instance.
-                satelliteMessages.clear();
-                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US)));
+            else{
+                satisfied = false;
+            }
+        }
+
+        if(!satisfied){
+            return null;
+        }
+
+        release(session);
+        earlySessions.increment();
+        long gap = System.currentTimeMillis() - session.getOpenedAt();
+        adaptiveTimeout.recordCompleted(gap);
+        HotPathMetrics.recordSplitSessionGap(gap);
+
+        String transmissionId = session.getTransmissionId();
+        completedEarly.put(transmissionId, session);
+        splitSessionTimer.newTimeout(() -> completedEarly.remove(transmissionId, session), adaptiveTimeout.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+
+        return new ResponseEntity<>(new ResponseObject(new Location(location.getX(), location.getY()), message), HttpStatus.OK);
+    }
+
+    /*A fragment of a transmission that was answered early gets the same answer, unless its satellite already sent one, in which case the
+    transmission ID is being reused and the fragment starts a new session (returns null).*/
+    private CompletableFuture<ResponseEntity> answerLateFragment(SplitSession session, SatelliteMessage message){
+        synchronized (session){
+            List<SatelliteMessage> satelliteMessages = session.getSatelliteMessages();
+
+            for(SatelliteMessage received : satelliteMessages){
+                if(received.getName().equals(message.getName())){
+                    completedEarly.remove(session.getTransmissionId(), session);
+                    return null;
+                }
             }
-            catch (LocationProcessingException | MessageProcessingException e){
-                //Clearing the list and returning just in case Google Cloud Run decides to reuse the container instance.
-                satelliteMessages.clear();
-                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(messageSource.getMessage("INSUFFICIENT_DATA_MESSAGE", null, Locale.US)));
+
+            satelliteMessages.add(message);
+            lateFragments.increment();
+            adaptiveTimeout.recordFragment(message.getName(), System.currentTimeMillis() - session.getOpenedAt());
+
+            if(satelliteMessages.size() >= message.getConstellation().size()){
+                completedEarly.remove(session.getTransmissionId(), session);
             }
         }
+
+        return session.getResult();
+    }
+
+    /*A session the store already purged is reported expired without fragments, the waiting requests get the answer of a session that
+    expired before its satellites sent enough of them, as with the local sessions.*/
+    private ResponseEntity solveStored(JoinResult result){
+        if(result.getFragments().isEmpty()){
+            return insufficientDataResponse;
+        }
+        return solve(result.getFragments(), null);
+    }
+
+    //Every request of a transmission gets the same answer, whatever instance solves it. The partial location is null when the fragments come from a store
+    private ResponseEntity solve(List<SatelliteMessage> satelliteMessages, PartialLocation partialLocation){
+        try{
+            RequestObject req = new RequestObject(satelliteMessages.toArray(new SatelliteMessage[0]));
+
+
+            List<String[]> messages = Arrays.stream(req.getSatelliteMessages()).map(SatelliteMessage::getMessage).collect(Collectors.toList());
+
+            Location location = partialLocation != null ? BasicFunctions.GetLocation(partialLocation, req.getSatelliteMessages()) : BasicFunctions.GetLocation(req.getSatelliteMessages());
+
+            return new ResponseEntity<>(new ResponseObject(location, BasicFunctions.GetMessage(messages)), HttpStatus.OK);
+        }
+        catch (JsonParseException e) {
+            return invalidJsonResponse;
+        }
+        catch (LocationProcessingException | MessageProcessingException e){
+            return insufficientDataResponse;
+        }
+    }
+
+    private static final class TrackedPolicy {
+        private final CompletionPolicy policy;
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+
+        private TrackedPolicy(CompletionPolicy policy){
+            this.policy = policy;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package cloudcode.services;
+
+import cloudcode.concurrent.HashedWheelTimer;
+import cloudcode.entities.SatelliteMessage;
+import cloudcode.solvers.PartialLocation;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+//Pending fragments of a single transmission, every access must be synchronized on the session itself
+public class SplitSession {
+
+    private final String transmissionId;
+    private final List<SatelliteMessage> satelliteMessages = new ArrayList<>(3);
+    private final CompletableFuture<ResponseEntity> result = new CompletableFuture<>();
+    private final PartialLocation partialLocation = new PartialLocation();
+    private HashedWheelTimer.Timeout timeout;
+    private long openedAt;
+    private boolean closed;
+
+    public SplitSession(String transmissionId){
+        this.transmissionId = transmissionId;
+    }
+
+    public String getTransmissionId() {
+        return transmissionId;
+    }
+
+    public List<SatelliteMessage> getSatelliteMessages() {
+        return satelliteMessages;
+    }
+
+    //Updated with every fragment that is added, so the last one only has to be checked against the candidates
+    public PartialLocation getPartialLocation() {
+        return partialLocation;
+    }
+
+    public CompletableFuture<ResponseEntity> getResult() {
+        return result;
+    }
+
+    //Wall clock time of the first fragment, the arrival gaps are measured from it
+    public long getOpenedAt() {
+        return openedAt;
+    }
+
+    public void setOpenedAt(long openedAt) {
+        this.openedAt = openedAt;
+    }
+
+    public HashedWheelTimer.Timeout getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(HashedWheelTimer.Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    //Closing also cancels the expiry, so a completed session doesn't leave anything behind in the timer
+    public void close() {
+        this.closed = true;
+        if(timeout != null){
+            timeout.cancel();
+        }
+    }
+}
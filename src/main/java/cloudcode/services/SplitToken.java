@@ -0,0 +1,32 @@
+package cloudcode.services;
+
+import cloudcode.entities.SatelliteMessage;
+
+import java.util.List;
+
+//Fragments of a transmission joined without server state, they travel back and forth with the client in a signed token
+public final class SplitToken {
+
+    private final long issuedAt;
+    private final int constellationFingerprint;
+    private final List<SatelliteMessage> satelliteMessages;
+
+    public SplitToken(long issuedAt, int constellationFingerprint, List<SatelliteMessage> satelliteMessages){
+        this.issuedAt = issuedAt;
+        this.constellationFingerprint = constellationFingerprint;
+        this.satelliteMessages = satelliteMessages;
+    }
+
+    //Milliseconds since the epoch when the first fragment arrived
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+
+    public int getConstellationFingerprint() {
+        return constellationFingerprint;
+    }
+
+    public List<SatelliteMessage> getSatelliteMessages() {
+        return satelliteMessages;
+    }
+}
@@ -0,0 +1,196 @@
+package cloudcode.services;
+
+import cloudcode.entities.Constellation;
+import cloudcode.entities.SatelliteMessage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/*Binary form of a SplitToken: version, issue time, constellation fingerprint and for each fragment its satellite ID, distance and words,
+followed by the first 16 bytes of its HMAC-SHA256 and encoded in URL safe base64. Counts, IDs and lengths are unsigned varints and the words
+UTF-8 bytes, so no field wraps however many satellites or letters there are. Every instance that shares the key can read the tokens
+the others signed, and a token that was tampered with doesn't verify.*/
+public final class SplitTokenCodec {
+
+    //The token travels in a request header, its base64 form has to fit in the default 8KB of them along with the rest
+    public static final int MAX_TOKEN_BYTES = 4096;
+
+    private static final byte VERSION = 2;
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MAC_LENGTH = 16;
+
+    private final ThreadLocal<Mac> macs;
+
+    public SplitTokenCodec(byte[] key){
+        SecretKeySpec secretKey = new SecretKeySpec(key, ALGORITHM);
+
+        //Mac instances aren't thread-safe, but they can be reused for any amount of messages
+        this.macs = ThreadLocal.withInitial(() -> {
+            try{
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(secretKey);
+                return mac;
+            }
+            catch (GeneralSecurityException e){
+                throw new IllegalStateException(e);
+            }
+        });
+        macs.get();
+    }
+
+    //Throws IllegalArgumentException if the fragments don't fit in MAX_TOKEN_BYTES
+    public String encode(SplitToken token){
+        try{
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream output = new DataOutputStream(bytes);
+
+            output.writeByte(VERSION);
+            output.writeLong(token.getIssuedAt());
+            output.writeInt(token.getConstellationFingerprint());
+            writeVarint(output, token.getSatelliteMessages().size());
+
+            for(SatelliteMessage satelliteMessage : token.getSatelliteMessages()){
+                writeVarint(output, satelliteMessage.getSatelliteId());
+                output.writeDouble(satelliteMessage.getDistance());
+                writeVarint(output, satelliteMessage.getMessage().length);
+
+                for(String word : satelliteMessage.getMessage()){
+                    output.writeBoolean(word != null);
+                    if(word != null){
+                        byte[] utf8 = word.getBytes(StandardCharsets.UTF_8);
+                        if(bytes.size() + utf8.length + MAC_LENGTH > MAX_TOKEN_BYTES){
+                            throw new IllegalArgumentException("The split token would be larger than " + MAX_TOKEN_BYTES + " bytes");
+                        }
+                        writeVarint(output, utf8.length);
+                        output.write(utf8);
+                    }
+                }
+
+                if(bytes.size() + MAC_LENGTH > MAX_TOKEN_BYTES){
+                    throw new IllegalArgumentException("The split token would be larger than " + MAX_TOKEN_BYTES + " bytes");
+                }
+            }
+
+            Mac mac = macs.get();
+            mac.update(bytes.toByteArray());
+            output.write(mac.doFinal(), 0, MAC_LENGTH);
+
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        }
+        catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Throws IllegalArgumentException if the token wasn't signed with our key or isn't valid for the given constellation
+    public SplitToken decode(String token, Constellation constellation){
+        //Checked before decoding, the base64 form is 4/3 of the bytes
+        if(token.length() > (MAX_TOKEN_BYTES * 4 + 2) / 3){
+            throw new IllegalArgumentException("Oversized split token");
+        }
+
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+
+        if(bytes.length <= MAC_LENGTH){
+            throw new IllegalArgumentException("Truncated split token");
+        }
+
+        int length = bytes.length - MAC_LENGTH;
+        Mac mac = macs.get();
+        mac.update(bytes, 0, length);
+        byte[] signature = Arrays.copyOf(mac.doFinal(), MAC_LENGTH);
+
+        if(!MessageDigest.isEqual(signature, Arrays.copyOfRange(bytes, length, bytes.length))){
+            throw new IllegalArgumentException("Invalid split token signature");
+        }
+
+        try{
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes, 0, length));
+
+            if(input.readByte() != VERSION){
+                throw new IllegalArgumentException("Unknown split token version");
+            }
+
+            long issuedAt = input.readLong();
+            int fingerprint = input.readInt();
+
+            //The satellites IDs in the token are only meaningful for the constellation it was issued for
+            if(fingerprint != constellation.getFingerprint()){
+                throw new IllegalArgumentException("The split token was issued for another constellation");
+            }
+
+            //Every length is bounded by the bytes left, so a corrupt one can't make us allocate more than the token itself
+            int count = readLength(input);
+            List<SatelliteMessage> satelliteMessages = new ArrayList<>(count + 1);
+
+            for(int i = 0; i < count; i++){
+                int satelliteId = readVarint(input);
+                double distance = input.readDouble();
+                String[] message = new String[readLength(input)];
+
+                for(int j = 0; j < message.length; j++){
+                    if(input.readBoolean()){
+                        byte[] utf8 = new byte[readLength(input)];
+                        input.readFully(utf8);
+                        message[j] = new String(utf8, StandardCharsets.UTF_8);
+                    }
+                }
+
+                if(satelliteId < 0 || satelliteId >= constellation.size()){
+                    throw new IllegalArgumentException("Unknown satellite in the split token");
+                }
+                satelliteMessages.add(new SatelliteMessage(message, distance, constellation.getName(satelliteId)));
+            }
+
+            if(input.available() > 0){
+                throw new IllegalArgumentException("Trailing bytes in the split token");
+            }
+
+            return new SplitToken(issuedAt, fingerprint, satelliteMessages);
+        }
+        catch (IOException e){
+            throw new IllegalArgumentException("Truncated split token", e);
+        }
+    }
+
+    private static void writeVarint(DataOutputStream output, int value) throws IOException {
+        while((value & ~0x7F) != 0){
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream input) throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7){
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0){
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in the split token");
+    }
+
+    private static int readLength(DataInputStream input) throws IOException {
+        int length = readVarint(input);
+        if(length < 0 || length > input.available()){
+            throw new IllegalArgumentException("Truncated split token");
+        }
+        return length;
+    }
+}
@@ -0,0 +1,119 @@
+package cloudcode.services;
+
+import cloudcode.BasicFunctions;
+import cloudcode.entities.Constellation;
+import cloudcode.entities.RequestObject;
+import cloudcode.entities.ResponseObject;
+import cloudcode.entities.SatelliteMessage;
+import cloudcode.entities.SplitTokenResponse;
+import cloudcode.exceptions.LocationProcessingException;
+import cloudcode.exceptions.MessageProcessingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.json.JsonParseException;
+import org.springframework.context.MessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*Joins split transmissions without keeping anything on the server: the fragments received so far travel in a signed token that the client
+sends back with the next fragment, so any instance sharing the key can take it and the one that gets the last fragment solves the transmission.*/
+@Service
+public class StatelessSplitService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatelessSplitService.class);
+    public static final String SPLIT_TOKEN_HEADER = "X-Split-Token";
+    public static final String NEW_TOKEN = "new";
+
+    private final SplitTokenCodec codec;
+    private final ResponseEntity<String> invalidJsonResponse;
+    private final ResponseEntity<String> insufficientDataResponse;
+    private final ResponseEntity<String> invalidTokenResponse;
+    private final ResponseEntity<String> oversizedTokenResponse;
+
+    @Value("#{ T(java.lang.Long).parseLong('${splitSatelliteMessage.timeout}')}")
+    private Long timeout;
+
+    //The secret is base64, without one a random key is generated and only this instance can read its tokens
+    public StatelessSplitService(MessageSource messageSource, @Value("${splitSatelliteMessage.token.secret}") String secret){
+        byte[] key;
+
+        if(secret == null || secret.isBlank()){
+            logger.warn("splitSatelliteMessage.token.secret not set, split tokens will only be valid in this instance");
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        }
+        else{
+            key = Base64.getDecoder().decode(secret.trim().getBytes(StandardCharsets.US_ASCII));
+        }
+
+        this.codec = new SplitTokenCodec(key);
+        this.invalidJsonResponse = ResponseEntity.status(HttpStatus.BAD_REQUEST).body(messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US));
+        this.insufficientDataResponse = ResponseEntity.status(HttpStatus.BAD_REQUEST).body(messageSource.getMessage("INSUFFICIENT_DATA_MESSAGE", null, Locale.US));
+        this.invalidTokenResponse = ResponseEntity.status(HttpStatus.BAD_REQUEST).body(messageSource.getMessage("INVALID_SPLIT_TOKEN_MESSAGE", null, Locale.US));
+        this.oversizedTokenResponse = ResponseEntity.status(HttpStatus.BAD_REQUEST).body(messageSource.getMessage("OVERSIZED_SPLIT_TOKEN_MESSAGE", null, Locale.US));
+    }
+
+    /*Adds the fragment to the ones in the token (NEW_TOKEN starts a transmission). Until every satellite of the constellation sent its fragment
+    the answer is 202 with the token to send next, a satellite that sends its fragment again replaces the previous one so retries are harmless.*/
+    public ResponseEntity addSatelliteMessage(String token, SatelliteMessage message){
+        Constellation constellation = message.getConstellation();
+        long now = System.currentTimeMillis();
+        SplitToken splitToken;
+
+        if(token == null || token.isBlank() || NEW_TOKEN.equalsIgnoreCase(token.trim())){
+            splitToken = new SplitToken(now, constellation.getFingerprint(), new ArrayList<>(1));
+        }
+        else{
+            try{
+                splitToken = codec.decode(token.trim(), constellation);
+            }
+            catch (IllegalArgumentException e){
+                return invalidTokenResponse;
+            }
+
+            //Same deadline the sessions of the stateful mode have, counted from the first fragment
+            if(now - splitToken.getIssuedAt() > TimeUnit.SECONDS.toMillis(timeout) || splitToken.getIssuedAt() > now + TimeUnit.SECONDS.toMillis(timeout)){
+                return invalidTokenResponse;
+            }
+        }
+
+        List<SatelliteMessage> satelliteMessages = splitToken.getSatelliteMessages();
+        satelliteMessages.removeIf(satelliteMessage -> satelliteMessage.getSatelliteId() == message.getSatelliteId());
+        satelliteMessages.add(message);
+
+        if(satelliteMessages.size() < constellation.size()){
+            String nextToken;
+            try{
+                nextToken = codec.encode(splitToken);
+            }
+            catch (IllegalArgumentException e){
+                return oversizedTokenResponse;
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).header(SPLIT_TOKEN_HEADER, nextToken).body(new SplitTokenResponse(nextToken));
+        }
+
+        try{
+            RequestObject req = new RequestObject(satelliteMessages.toArray(new SatelliteMessage[0]));
+            List<String[]> messages = satelliteMessages.stream().map(SatelliteMessage::getMessage).collect(Collectors.toList());
+
+            return new ResponseEntity<>(new ResponseObject(BasicFunctions.GetLocation(req.getSatelliteMessages()), BasicFunctions.GetMessage(messages)), HttpStatus.OK);
+        }
+        catch (JsonParseException e) {
+            return invalidJsonResponse;
+        }
+        catch (LocationProcessingException | MessageProcessingException e){
+            return insufficientDataResponse;
+        }
+    }
+}
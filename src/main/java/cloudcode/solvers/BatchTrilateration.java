@@ -0,0 +1,80 @@
+package cloudcode.solvers;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*Solves many transmissions at once from struct-of-arrays inputs: the distances to each satellite come in parallel double[] and the positions
+are written to parallel double[] plus a status bitmap with one bit per transmission (bit i % 64 of word i / 64). Big batches are split in
+chunks that are solved in a fork-join pool.*/
+public final class BatchTrilateration {
+
+    //Chunks are multiples of 64 so that two tasks never write the same word of the status bitmap
+    private static final int MIN_CHUNK = 64 * 128;
+
+    private BatchTrilateration(){
+    }
+
+    public static int statusWords(int count){
+        return (count + 63) >>> 6;
+    }
+
+    public static boolean isSolved(long[] status, int index){
+        return (status[index >>> 6] & (1L << (index & 63))) != 0;
+    }
+
+    public static void solve(TrilaterationSolver solver, double[] r1, double[] r2, double[] r3, double[] outX, double[] outY, long[] status){
+        solve(solver, r1, r2, r3, outX, outY, status, ForkJoinPool.commonPool());
+    }
+
+    public static void solve(TrilaterationSolver solver, double[] r1, double[] r2, double[] r3, double[] outX, double[] outY, long[] status, ForkJoinPool pool){
+        int count = r1.length;
+
+        if(r2.length != count || r3.length != count || outX.length < count || outY.length < count || status.length < statusWords(count)){
+            throw new IllegalArgumentException("The batch arrays don't have matching lengths");
+        }
+
+        if(count <= MIN_CHUNK || pool.getParallelism() == 1){
+            solver.solveBatch(r1, r2, r3, outX, outY, status, 0, count);
+            return;
+        }
+
+        pool.invoke(new Chunk(solver, r1, r2, r3, outX, outY, status, 0, count));
+    }
+
+    private static final class Chunk extends RecursiveAction {
+
+        private final TrilaterationSolver solver;
+        private final double[] r1;
+        private final double[] r2;
+        private final double[] r3;
+        private final double[] outX;
+        private final double[] outY;
+        private final long[] status;
+        private final int from;
+        private final int to;
+
+        private Chunk(TrilaterationSolver solver, double[] r1, double[] r2, double[] r3, double[] outX, double[] outY, long[] status, int from, int to){
+            this.solver = solver;
+            this.r1 = r1;
+            this.r2 = r2;
+            this.r3 = r3;
+            this.outX = outX;
+            this.outY = outY;
+            this.status = status;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from <= MIN_CHUNK){
+                solver.solveBatch(r1, r2, r3, outX, outY, status, from, to);
+                return;
+            }
+
+            int middle = from + (((to - from) >>> 1) & ~63);
+            invokeAll(new Chunk(solver, r1, r2, r3, outX, outY, status, from, middle),
+                      new Chunk(solver, r1, r2, r3, outX, outY, status, middle, to));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package cloudcode.solvers;
+
+//Mutable holder the solvers write into, so a caller can reuse the same instance for every solve without allocating
+public final class LocationResult {
+
+    private double x;
+    private double y;
+
+    //Intersection points of the first two circles, the solution is one of them
+    private double candidate1X;
+    private double candidate1Y;
+    private double candidate2X;
+    private double candidate2Y;
+    private boolean candidates;
+
+    //Root mean square of the differences between the distances to the position and the readings
+    private double residual;
+    private int iterations;
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getCandidate1X() {
+        return candidate1X;
+    }
+
+    public double getCandidate1Y() {
+        return candidate1Y;
+    }
+
+    public double getCandidate2X() {
+        return candidate2X;
+    }
+
+    public double getCandidate2Y() {
+        return candidate2Y;
+    }
+
+    public double getResidual() {
+        return residual;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    //False when the first two circles don't intersect, so there are no candidates to choose from
+    public boolean hasCandidates() {
+        return candidates;
+    }
+
+    void clear() {
+        this.candidates = false;
+        this.residual = Double.NaN;
+        this.iterations = 0;
+    }
+
+    void setPosition(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    void setResidual(double residual, int iterations) {
+        this.residual = residual;
+        this.iterations = iterations;
+    }
+
+    void setCandidates(double candidate1X, double candidate1Y, double candidate2X, double candidate2Y) {
+        this.candidate1X = candidate1X;
+        this.candidate1Y = candidate1Y;
+        this.candidate2X = candidate2X;
+        this.candidate2Y = candidate2Y;
+        this.candidates = true;
+    }
+}
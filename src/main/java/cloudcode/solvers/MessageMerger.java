@@ -0,0 +1,207 @@
+package cloudcode.solvers;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*Merges the fragments of a message received by any number of satellites. The fragments are aligned by their ends (the leading words are the
+delay of each satellite), and at each position the word most fragments agree on wins, blanks don't vote and a tie leaves the word empty.
+Words are compared through the integer IDs of a dictionary of interned tokens, so besides the output array and the first time a padded word
+shows up a merge doesn't allocate. A merger isn't thread-safe, every thread keeps and reuses its own.*/
+public final class MessageMerger {
+
+    private static final int BLANK = 0;
+    private static final int DEFAULT_MAX_WORDS = 1 << 14;
+    private static final String[] EMPTY = new String[0];
+
+    private final int maxWords;
+
+    //Open addressing table from the hash of a trimmed word to its ID (0 is an empty slot), words[id] is the interned word
+    private String[] words = new String[64];
+    private int[] slots = new int[128];
+    private int size = 1;
+
+    //Per-merge scratch, they only grow
+    private int[] offsets = new int[8];
+    private int[] votedIds = new int[8];
+    private int[] votes = new int[8];
+
+    public MessageMerger(){
+        this(DEFAULT_MAX_WORDS);
+    }
+
+    //The dictionary is emptied before a merge once it holds more than maxWords, so a long running thread doesn't keep every word it ever saw
+    public MessageMerger(int maxWords){
+        this.words[BLANK] = "";
+        this.maxWords = maxWords;
+    }
+
+    //Returns an empty array if every fragment is blank
+    public String[] merge(List<String[]> fragments){
+        int count = fragments.size();
+
+        if(size > maxWords){
+            clear();
+        }
+        if(offsets.length < count){
+            offsets = new int[Integer.highestOneBit(count) << 1];
+            votedIds = new int[offsets.length];
+            votes = new int[offsets.length];
+        }
+
+        //The message is as long as the longest fragment from its first word until the end
+        int length = 0;
+        for(int f = 0; f < count; f++){
+            String[] fragment = fragments.get(f);
+            int first = 0;
+            while(first < fragment.length && isBlank(fragment[first])){
+                first++;
+            }
+            length = Math.max(length, fragment.length - first);
+        }
+
+        if(length == 0){
+            return EMPTY;
+        }
+
+        //Index in each fragment of the first word of the message, it's negative for the fragments shorter than the message
+        for(int f = 0; f < count; f++){
+            offsets[f] = fragments.get(f).length - length;
+        }
+
+        String[] message = new String[length];
+
+        for(int position = 0; position < length; position++){
+            int distinct = 0;
+
+            for(int f = 0; f < count; f++){
+                int index = offsets[f] + position;
+                if(index < 0){
+                    continue;
+                }
+
+                int id = intern(fragments.get(f)[index]);
+                if(id == BLANK){
+                    continue;
+                }
+
+                int candidate = 0;
+                while(candidate < distinct && votedIds[candidate] != id){
+                    candidate++;
+                }
+                if(candidate == distinct){
+                    votedIds[distinct] = id;
+                    votes[distinct++] = 0;
+                }
+                votes[candidate]++;
+            }
+
+            int winner = BLANK;
+            int maxVotes = 0;
+            for(int candidate = 0; candidate < distinct; candidate++){
+                if(votes[candidate] > maxVotes){
+                    winner = votedIds[candidate];
+                    maxVotes = votes[candidate];
+                }
+                else if(votes[candidate] == maxVotes){
+                    winner = BLANK;
+                }
+            }
+
+            message[position] = words[winner];
+        }
+
+        return message;
+    }
+
+    public int getDictionarySize(){
+        return size - 1;
+    }
+
+    //ID of the word without its surrounding whitespace, blank and null words are BLANK
+    private int intern(String word){
+        if(word == null){
+            return BLANK;
+        }
+
+        int start = 0;
+        int end = word.length();
+        while(start < end && word.charAt(start) <= ' '){
+            start++;
+        }
+        while(end > start && word.charAt(end - 1) <= ' '){
+            end--;
+        }
+        if(start == end){
+            return BLANK;
+        }
+
+        int length = end - start;
+        int hash = 0;
+        for(int i = start; i < end; i++){
+            hash = 31 * hash + word.charAt(i);
+        }
+
+        int mask = slots.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+
+        while(true){
+            int id = slots[slot];
+            if(id == BLANK){
+                break;
+            }
+            String interned = words[id];
+            if(interned.length() == length && interned.regionMatches(0, word, start, length)){
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        //First time we see this word, unpadded words are kept as they come
+        if(size == words.length){
+            String[] grown = new String[size << 1];
+            System.arraycopy(words, 0, grown, 0, size);
+            words = grown;
+        }
+        int id = size++;
+        words[id] = length == word.length() ? word : word.substring(start, end);
+        slots[slot] = id;
+
+        if(size * 2 > slots.length){
+            rehash();
+        }
+
+        return id;
+    }
+
+    private void rehash(){
+        slots = new int[slots.length << 1];
+        int mask = slots.length - 1;
+
+        for(int id = 1; id < size; id++){
+            int hash = words[id].hashCode();
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while(slots[slot] != BLANK){
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id;
+        }
+    }
+
+    private void clear(){
+        Arrays.fill(words, 1, size, null);
+        Arrays.fill(slots, BLANK);
+        size = 1;
+    }
+
+    private static boolean isBlank(String word){
+        if(word == null){
+            return true;
+        }
+        for(int i = 0; i < word.length(); i++){
+            if(word.charAt(i) > ' '){
+                return false;
+            }
+        }
+        return true;
+    }
+}
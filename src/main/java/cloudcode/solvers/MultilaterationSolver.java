@@ -0,0 +1,186 @@
+package cloudcode.solvers;
+
+/*Least-squares position from any number (3 or more) of distance readings. It starts from the solution of the linearized system and refines it
+with Levenberg-Marquardt iterations over the real distances. The solver itself is immutable and can be shared, the per-call scratch arrays
+live in a Workspace that each thread keeps and reuses.*/
+public final class MultilaterationSolver {
+
+    public static final int DEFAULT_MAX_ITERATIONS = 20;
+
+    private static final double INITIAL_DAMPING = 0.001;
+    private static final double CONVERGENCE = 1e-12;
+
+    private final int maxIterations;
+    private final double tolerance;
+
+    public MultilaterationSolver(int maxIterations, double tolerance){
+        if(maxIterations < 0){
+            throw new IllegalArgumentException("The amount of iterations can't be negative");
+        }
+        this.maxIterations = maxIterations;
+        this.tolerance = tolerance;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /*Returns false if there're less than 3 readings or if the root mean square of the residuals is above the tolerance. In both cases the result
+    still holds the best position found and its residual.*/
+    public boolean solve(double[] xs, double[] ys, double[] radiuses, int count, Workspace workspace, LocationResult result){
+        result.clear();
+
+        if(count < 3){
+            return false;
+        }
+
+        double[] distances = workspace.distances(count);
+
+        //Warm start: subtracting the first circle from the others leaves a linear system we solve by least squares
+        double squaredNorm0 = xs[0] * xs[0] + ys[0] * ys[0];
+        double squaredR0 = radiuses[0] * radiuses[0];
+        double ata11 = 0.0, ata12 = 0.0, ata22 = 0.0, atb1 = 0.0, atb2 = 0.0;
+
+        for(int i = 1; i < count; i++){
+            double a1 = 2.0 * (xs[i] - xs[0]);
+            double a2 = 2.0 * (ys[i] - ys[0]);
+            double b = squaredR0 - radiuses[i] * radiuses[i] + xs[i] * xs[i] + ys[i] * ys[i] - squaredNorm0;
+
+            ata11 += a1 * a1;
+            ata12 += a1 * a2;
+            ata22 += a2 * a2;
+            atb1 += a1 * b;
+            atb2 += a2 * b;
+        }
+
+        double x, y;
+        double determinant = ata11 * ata22 - ata12 * ata12;
+
+        if(Math.abs(determinant) > CONVERGENCE * (ata11 * ata22 + CONVERGENCE)){
+            x = (ata22 * atb1 - ata12 * atb2) / determinant;
+            y = (ata11 * atb2 - ata12 * atb1) / determinant;
+        }
+        else{
+            //The satellites are collinear, we start from their centroid and let the iterations pick a side
+            x = 0.0;
+            y = 0.0;
+            for(int i = 0; i < count; i++){
+                x += xs[i];
+                y += ys[i];
+            }
+            x /= count;
+            y /= count;
+        }
+
+        double cost = cost(xs, ys, radiuses, count, x, y, distances);
+        double damping = INITIAL_DAMPING;
+        int iterations = 0;
+
+        while(iterations < maxIterations && cost > 0.0){
+            iterations++;
+
+            //Normal equations of the Jacobian of the residuals d_i - r_i, the distances are the ones of the current point
+            double jtj11 = 0.0, jtj12 = 0.0, jtj22 = 0.0, jtr1 = 0.0, jtr2 = 0.0;
+
+            for(int i = 0; i < count; i++){
+                double distance = distances[i];
+                if(distance == 0.0){
+                    continue;
+                }
+                double j1 = (x - xs[i]) / distance;
+                double j2 = (y - ys[i]) / distance;
+                double residual = distance - radiuses[i];
+
+                jtj11 += j1 * j1;
+                jtj12 += j1 * j2;
+                jtj22 += j2 * j2;
+                jtr1 += j1 * residual;
+                jtr2 += j2 * residual;
+            }
+
+            double a11 = jtj11 * (1.0 + damping);
+            double a22 = jtj22 * (1.0 + damping);
+            double stepDeterminant = a11 * a22 - jtj12 * jtj12;
+
+            if(stepDeterminant == 0.0){
+                break;
+            }
+
+            double stepX = -(a22 * jtr1 - jtj12 * jtr2) / stepDeterminant;
+            double stepY = -(a11 * jtr2 - jtj12 * jtr1) / stepDeterminant;
+
+            double[] candidateDistances = workspace.candidateDistances();
+            double candidateCost = cost(xs, ys, radiuses, count, x + stepX, y + stepY, candidateDistances);
+
+            if(candidateCost < cost){
+                x += stepX;
+                y += stepY;
+                cost = candidateCost;
+                distances = workspace.swap();
+                damping /= 10.0;
+
+                if(Math.abs(stepX) + Math.abs(stepY) <= CONVERGENCE * (1.0 + Math.abs(x) + Math.abs(y))){
+                    break;
+                }
+            }
+            else{
+                damping *= 10.0;
+
+                if(damping > 1e12){
+                    break;
+                }
+            }
+        }
+
+        double residual = Math.sqrt(cost / count);
+        result.setPosition(x, y);
+        result.setResidual(residual, iterations);
+
+        return residual <= tolerance;
+    }
+
+    //Sum of the squared residuals, leaving the distances from the point to every satellite in the given array
+    private static double cost(double[] xs, double[] ys, double[] radiuses, int count, double x, double y, double[] distances){
+        double cost = 0.0;
+        for(int i = 0; i < count; i++){
+            double dx = x - xs[i];
+            double dy = y - ys[i];
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            double residual = distance - radiuses[i];
+            distances[i] = distance;
+            cost += residual * residual;
+        }
+        return cost;
+    }
+
+    //Scratch arrays for a solve, they only grow so a thread that keeps its workspace doesn't allocate after the first calls
+    public static final class Workspace {
+
+        private double[] distances = new double[8];
+        private double[] candidateDistances = new double[8];
+
+        private double[] distances(int count){
+            if(distances.length < count){
+                distances = new double[Integer.highestOneBit(count) << 1];
+                candidateDistances = new double[distances.length];
+            }
+            return distances;
+        }
+
+        private double[] candidateDistances(){
+            return candidateDistances;
+        }
+
+        //The candidate's distances become the current ones
+        private double[] swap(){
+            double[] temp = distances;
+            distances = candidateDistances;
+            candidateDistances = temp;
+            return distances;
+        }
+    }
+}
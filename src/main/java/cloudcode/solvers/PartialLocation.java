@@ -0,0 +1,114 @@
+package cloudcode.solvers;
+
+import cloudcode.entities.Constellation;
+
+import java.util.Arrays;
+
+/*Location of a split transmission built as its fragments arrive. Each reading is put in the slot of its satellite, so when the last one
+arrives the closed form only has to be evaluated, and as soon as two different satellites sent theirs the points where both circles meet are
+kept (the position is one of them) to answer the queries about the pending transmission. The final position isn't taken from the candidates:
+intersecting by pairs rounds differently depending on which pair came first, and the answer mustn't depend on the arrival order. It isn't
+thread-safe, the split sessions guard it with their own lock.*/
+public final class PartialLocation {
+
+    private Constellation constellation;
+    private int first = -1;
+    private int second = -1;
+    private double firstDistance;
+
+    //Reading of each satellite by ID, NaN until it arrives
+    private double[] distances;
+    private int readings;
+
+    //Readings validated against different constellation snapshots can't be combined, the transmission is left to the full solve
+    private boolean mixed;
+
+    private int candidates;
+    private final double[] candidateX = new double[2];
+    private final double[] candidateY = new double[2];
+
+    public void add(Constellation constellation, int satelliteId, double distance){
+        if(this.constellation == null){
+            this.constellation = constellation;
+        }
+        else if(this.constellation != constellation){
+            mixed = true;
+            candidates = 0;
+        }
+
+        if(mixed){
+            return;
+        }
+
+        if(distances == null){
+            distances = new double[constellation.size()];
+            Arrays.fill(distances, Double.NaN);
+        }
+        if(Double.isNaN(distances[satelliteId])){
+            readings++;
+        }
+        distances[satelliteId] = distance;
+
+        if(first < 0){
+            first = satelliteId;
+            firstDistance = distance;
+        }
+        else if(second < 0 && satelliteId != first){
+            second = satelliteId;
+            intersect(distance);
+        }
+    }
+
+    //0 until two satellites sent their readings or if their circles don't meet, 1 if they're tangent
+    public int getCandidateCount(){
+        return candidates;
+    }
+
+    public double getCandidateX(int candidate){
+        return candidateX[candidate];
+    }
+
+    public double getCandidateY(int candidate){
+        return candidateY[candidate];
+    }
+
+    public Constellation getConstellation(){
+        return constellation;
+    }
+
+    //True once every satellite of a three satellite constellation sent its reading (and only one each)
+    public boolean isComplete(){
+        return !mixed && distances != null && distances.length == 3 && readings == 3;
+    }
+
+    //Reading of the satellite, NaN if it hasn't arrived
+    public double getDistance(int satelliteId){
+        return distances[satelliteId];
+    }
+
+    //Same construction as TrilaterationSolver.solvePairwise, with the baseline between both satellites taken from the constellation
+    private void intersect(double secondDistance){
+        double d = constellation.getBaselineDistance(first, second);
+        double r1 = firstDistance;
+        double r2 = secondDistance;
+
+        if(d > r1 + r2 || d < Math.abs(r1 - r2)){
+            candidates = 0;
+            return;
+        }
+
+        double unitX = constellation.getBaselineX(first, second) / d;
+        double unitY = constellation.getBaselineY(first, second) / d;
+        double a = (r1 * r1 - r2 * r2 + d * d) / (2.0 * d);
+        double h = Math.sqrt(Math.max(0.0, r1 * r1 - a * a));
+
+        double pointX = constellation.getX(first) + unitX * a;
+        double pointY = constellation.getY(first) + unitY * a;
+
+        candidateX[0] = pointX - unitY * h;
+        candidateY[0] = pointY + unitX * h;
+        candidateX[1] = pointX + unitY * h;
+        candidateY[1] = pointY - unitX * h;
+        candidates = h == 0.0 ? 1 : 2;
+    }
+}
@@ -0,0 +1,252 @@
+package cloudcode.solvers;
+
+/*Finds the point where three circles intersect. Everything that only depends on the satellites' positions is computed once in the constructor,
+so a solve only works with the radiuses, it doesn't allocate and it's safe to share the instance between threads.*/
+public final class TrilaterationSolver {
+
+    public static final double DEFAULT_TOLERANCE = 0.000001;
+
+    //Below this sine between the rows of the linear system the centers are too close to collinear to invert it reliably
+    private static final double MIN_CONDITION = 0.000001;
+
+    private final double x1;
+    private final double y1;
+    private final double x2;
+    private final double y2;
+    private final double x3;
+    private final double y3;
+    private final double tolerance;
+
+    //Baseline between the first two centers
+    private final double d;
+    private final double halfD;
+    private final double inverseTwoD;
+    private final double unitX;
+    private final double unitY;
+
+    /*Subtracting the first circle's equation from the other two leaves a 2x2 linear system whose matrix only depends on the centers,
+    so we keep its inverse and the constant terms. linear is false when the system is ill-conditioned.*/
+    private final boolean linear;
+    private final double inverse11;
+    private final double inverse12;
+    private final double inverse21;
+    private final double inverse22;
+    private final double k2;
+    private final double k3;
+
+    public TrilaterationSolver(double x1, double y1, double x2, double y2, double x3, double y3){
+        this(x1, y1, x2, y2, x3, y3, DEFAULT_TOLERANCE);
+    }
+
+    //Do not change the parameter positions unless you prove mathematically that doing so does not change the result.
+    public TrilaterationSolver(double x1, double y1, double x2, double y2, double x3, double y3, double tolerance){
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+        this.x3 = x3;
+        this.y3 = y3;
+        this.tolerance = tolerance;
+
+        /* dx and dy are the vertical and horizontal distances between
+         * the circle centers.
+         */
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+
+        /* Determine the straight-line distance between the centers. */
+        this.d = Math.sqrt((dy * dy) + (dx * dx));
+
+        if(d == 0.0){
+            throw new IllegalArgumentException("The first two circles can't share their center");
+        }
+
+        this.halfD = d / 2.0;
+        this.inverseTwoD = 1.0 / (2.0 * d);
+        this.unitX = dx / d;
+        this.unitY = dy / d;
+
+        double a11 = 2.0 * dx;
+        double a12 = 2.0 * dy;
+        double a21 = 2.0 * (x3 - x1);
+        double a22 = 2.0 * (y3 - y1);
+        double determinant = a11 * a22 - a12 * a21;
+        double rowNorms = Math.sqrt((a11 * a11 + a12 * a12) * (a21 * a21 + a22 * a22));
+
+        this.linear = rowNorms > 0.0 && Math.abs(determinant) / rowNorms >= MIN_CONDITION;
+        this.inverse11 = linear ? a22 / determinant : 0.0;
+        this.inverse12 = linear ? -a12 / determinant : 0.0;
+        this.inverse21 = linear ? -a21 / determinant : 0.0;
+        this.inverse22 = linear ? a11 / determinant : 0.0;
+
+        double squaredNorm1 = x1 * x1 + y1 * y1;
+        this.k2 = x2 * x2 + y2 * y2 - squaredNorm1;
+        this.k3 = x3 * x3 + y3 * y3 - squaredNorm1;
+    }
+
+    public boolean isLinear() {
+        return linear;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    //Returns false if the circles don't meet at a single point, in which case the position in the result is undefined
+    public boolean solve(double r1, double r2, double r3, LocationResult result){
+        if(!linear){
+            return solvePairwise(r1, r2, r3, result);
+        }
+
+        result.clear();
+
+        double squaredR1 = r1 * r1;
+        double b2 = squaredR1 - r2 * r2 + k2;
+        double b3 = squaredR1 - r3 * r3 + k3;
+
+        double x = inverse11 * b2 + inverse12 * b3;
+        double y = inverse21 * b2 + inverse22 * b3;
+
+        /* The point only satisfies the differences between the circles' equations, the largest of its distances to the three circles
+         * is what has to be within the tolerance.
+         */
+        double residual = maxResidual(x, y, r1, r2, r3);
+        result.setResidual(residual, 0);
+
+        if(residual > tolerance){
+            return false;
+        }
+
+        result.setPosition(x, y);
+        return true;
+    }
+
+    /*Solves the transmissions in [from, to) of the parallel arrays. from must be a multiple of 64, every transmission sets its bit in the status
+    bitmap (bit i % 64 of word i / 64) only if it was solved, the output coordinates of the other ones are undefined.*/
+    public void solveBatch(double[] r1, double[] r2, double[] r3, double[] outX, double[] outY, long[] status, int from, int to){
+        if(!linear){
+            solvePairwiseBatch(r1, r2, r3, outX, outY, status, from, to);
+            return;
+        }
+
+        //No branches nor calls in here, so the JIT can unroll and vectorize the loop
+        for(int i = from; i < to; i++){
+            double squaredR1 = r1[i] * r1[i];
+            double b2 = squaredR1 - r2[i] * r2[i] + k2;
+            double b3 = squaredR1 - r3[i] * r3[i] + k3;
+            outX[i] = inverse11 * b2 + inverse12 * b3;
+            outY[i] = inverse21 * b2 + inverse22 * b3;
+        }
+
+        for(int word = from >>> 6; word << 6 < to; word++){
+            int start = word << 6;
+            int end = Math.min(start + 64, to);
+            long bits = 0L;
+
+            for(int i = start; i < end; i++){
+                double residual = maxResidual(outX[i], outY[i], r1[i], r2[i], r3[i]);
+                bits |= (residual <= tolerance ? 1L : 0L) << (i - start);
+            }
+
+            status[word] = bits;
+        }
+    }
+
+    //Largest difference between the distance from the point to each center and its radius
+    private double maxResidual(double x, double y, double r1, double r2, double r3){
+        double dx1 = x - x1, dy1 = y - y1;
+        double dx2 = x - x2, dy2 = y - y2;
+        double dx3 = x - x3, dy3 = y - y3;
+        double residual1 = Math.abs(Math.sqrt((dx1 * dx1) + (dy1 * dy1)) - r1);
+        double residual2 = Math.abs(Math.sqrt((dx2 * dx2) + (dy2 * dy2)) - r2);
+        double residual3 = Math.abs(Math.sqrt((dx3 * dx3) + (dy3 * dy3)) - r3);
+        return Math.max(residual1, Math.max(residual2, residual3));
+    }
+
+    private void solvePairwiseBatch(double[] r1, double[] r2, double[] r3, double[] outX, double[] outY, long[] status, int from, int to){
+        LocationResult result = new LocationResult();
+
+        for(int word = from >>> 6; word << 6 < to; word++){
+            int start = word << 6;
+            int end = Math.min(start + 64, to);
+            long bits = 0L;
+
+            for(int i = start; i < end; i++){
+                if(solvePairwise(r1[i], r2[i], r3[i], result)){
+                    bits |= 1L << (i - start);
+                }
+                outX[i] = result.getX();
+                outY[i] = result.getY();
+            }
+
+            status[word] = bits;
+        }
+    }
+
+    //Intersects the first two circles and checks which of both points is on the third one
+    public boolean solvePairwise(double r1, double r2, double r3, LocationResult result){
+        result.clear();
+
+        /* Check for solvability. */
+        if (d > (r1 + r2)) {
+            /* no solution. circles do not intersect. */
+            return false;
+        }
+        if (d < Math.abs(r1 - r2)) {
+            /* no solution. one circle is contained in the other */
+            return false;
+        }
+
+        /* 'point 2' is the point where the line through the circle
+         * intersection points crosses the line between the circle
+         * centers.
+         */
+
+        /* Determine the distance from point 0 to point 2. */
+        double a = ((r1 * r1) - (r2 * r2)) * inverseTwoD + halfD;
+
+        /* Determine the coordinates of point 2. */
+        double point2X = x1 + (unitX * a);
+        double point2Y = y1 + (unitY * a);
+
+        /* Determine the distance from point 2 to either of the
+         * intersection points.
+         */
+        double h = Math.sqrt(Math.max(0.0, (r1 * r1) - (a * a)));
+
+        /* Now determine the offsets of the intersection points from
+         * point 2.
+         */
+        double rx = -unitY * h;
+        double ry = unitX * h;
+
+        /* Determine the absolute intersection points. */
+        double intersectionPoint1X = point2X + rx;
+        double intersectionPoint1Y = point2Y + ry;
+        double intersectionPoint2X = point2X - rx;
+        double intersectionPoint2Y = point2Y - ry;
+
+        result.setCandidates(intersectionPoint1X, intersectionPoint1Y, intersectionPoint2X, intersectionPoint2Y);
+
+        /* Lets determine if circle 3 intersects at either of the above intersection points. */
+        double dx = intersectionPoint1X - x3;
+        double dy = intersectionPoint1Y - y3;
+        double d1 = Math.sqrt((dy * dy) + (dx * dx));
+
+        if (Math.abs(d1 - r3) <= tolerance) {
+            result.setPosition(intersectionPoint1X, intersectionPoint1Y);
+            return true;
+        }
+
+        dx = intersectionPoint2X - x3;
+        dy = intersectionPoint2Y - y3;
+        double d2 = Math.sqrt((dy * dy) + (dx * dx));
+
+        if (Math.abs(d2 - r3) <= tolerance) {
+            result.setPosition(intersectionPoint2X, intersectionPoint2Y);
+            return true;
+        }
+
+        return false;
+    }
+}
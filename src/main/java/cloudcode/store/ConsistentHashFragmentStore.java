@@ -0,0 +1,92 @@
+package cloudcode.store;
+
+import cloudcode.entities.SatelliteMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/*Partitions the transmissions between several stores with a consistent hash ring, so every instance sends the fragments of a transmission to
+the same node and adding or removing a node only moves the transmissions of the ring segments it takes or gives back. Each node is placed at
+many points of the ring so the transmissions spread evenly.*/
+public final class ConsistentHashFragmentStore implements FragmentStore {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final FragmentStore[] nodes;
+
+    //Sorted positions of the ring and the node that owns the segment ending at each one
+    private final int[] ring;
+    private final FragmentStore[] owners;
+
+    public ConsistentHashFragmentStore(List<? extends FragmentStore> nodes, List<String> names){
+        this(nodes, names, DEFAULT_VIRTUAL_NODES);
+    }
+
+    //The names place the nodes on the ring, every instance must use the same ones (as host:port) to agree on the partitions
+    public ConsistentHashFragmentStore(List<? extends FragmentStore> nodes, List<String> names, int virtualNodes){
+        if(nodes.isEmpty() || nodes.size() != names.size()){
+            throw new IllegalArgumentException("Every fragment store node needs a name");
+        }
+
+        this.nodes = nodes.toArray(new FragmentStore[0]);
+
+        long[] points = new long[nodes.size() * virtualNodes];
+        for(int node = 0; node < nodes.size(); node++){
+            for(int replica = 0; replica < virtualNodes; replica++){
+                int position = hash(names.get(node) + "#" + replica);
+                //Position in the high bits and node in the low ones, so sorting the points sorts the ring
+                points[node * virtualNodes + replica] = ((long) position << 32) | node;
+            }
+        }
+        Arrays.sort(points);
+
+        this.ring = new int[points.length];
+        this.owners = new FragmentStore[points.length];
+        for(int i = 0; i < points.length; i++){
+            ring[i] = (int) (points[i] >> 32);
+            owners[i] = this.nodes[(int) points[i]];
+        }
+    }
+
+    @Override
+    public JoinResult add(String transmissionId, SatelliteMessage fragment, int expected, long timeoutMillis) {
+        return nodeFor(transmissionId).add(transmissionId, fragment, expected, timeoutMillis);
+    }
+
+    @Override
+    public JoinResult poll(String transmissionId, long sessionId) {
+        return nodeFor(transmissionId).poll(transmissionId, sessionId);
+    }
+
+    //First point of the ring at or after the hash of the transmission, wrapping around
+    public FragmentStore nodeFor(String transmissionId){
+        int index = Arrays.binarySearch(ring, hash(transmissionId));
+        if(index < 0){
+            index = -index - 1;
+        }
+        return owners[index == ring.length ? 0 : index];
+    }
+
+    @Override
+    public void close() {
+        for(FragmentStore node : nodes){
+            node.close();
+        }
+    }
+
+    //FNV-1a over the UTF-8 bytes with a final avalanche, unlike String.hashCode() it spreads similar IDs all over the ring
+    static int hash(String key){
+        int hash = 0x811c9dc5;
+        for(byte b : key.getBytes(StandardCharsets.UTF_8)){
+            hash ^= b & 0xff;
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
@@ -0,0 +1,22 @@
+package cloudcode.store;
+
+import cloudcode.entities.SatelliteMessage;
+
+/*Keeps the pending fragments of split transmissions somewhere several instances can reach, so the fragments of a transmission can be joined
+whatever instance each one hits. Sessions are identified by the transmission ID and an ID the store gives them, since the same transmission ID
+starts a new session once the previous one is closed.*/
+public interface FragmentStore extends AutoCloseable {
+
+    /*Atomically adds the fragment to the open session of the transmission, opening one that expires after timeoutMillis if there's none.
+    The result is COMPLETE with every fragment if this one was the expected-th (the session is closed then), PENDING with the session ID
+    otherwise, or REJECTED if the store can't open more sessions. A store that can't carry a fragment that large throws IllegalArgumentException
+    without adding it.*/
+    JoinResult add(String transmissionId, SatelliteMessage fragment, int expected, long timeoutMillis);
+
+    //PENDING while the session is open, COMPLETE or EXPIRED with its fragments once it's closed
+    JoinResult poll(String transmissionId, long sessionId);
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,63 @@
+package cloudcode.store;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*splitSatelliteMessage.store picks where the pending split fragments are kept: local (the default) keeps them in the sessions of each instance,
+embedded goes through the store path with an in-process store, and socket partitions them between the store servers of
+splitSatelliteMessage.store.nodes. Any instance can also serve a store node by setting splitSatelliteMessage.store.server.port.
+The local sessions are logged to splitSatelliteMessage.wal.directory when it's set.*/
+@Configuration
+public class FragmentStoreConfiguration {
+
+  @Bean
+  @ConditionalOnProperty(name = "splitSatelliteMessage.store", havingValue = "embedded")
+  public FragmentStore embeddedFragmentStore(@Value("${splitSatelliteMessage.maxSessions}") int maxSessions) {
+    return new InMemoryFragmentStore(maxSessions);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "splitSatelliteMessage.store", havingValue = "socket")
+  public FragmentStore socketFragmentStore(@Value("${splitSatelliteMessage.store.nodes}") String nodes) {
+    List<SocketFragmentStore> stores = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+
+    for (String node : nodes.split(",")) {
+      String address = node.trim();
+      int separator = address.lastIndexOf(':');
+      if (separator <= 0) {
+        throw new IllegalArgumentException("Fragment store nodes go as host:port, got " + address);
+      }
+      stores.add(new SocketFragmentStore(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1))));
+      names.add(address);
+    }
+
+    return new ConsistentHashFragmentStore(stores, names);
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnExpression("${splitSatelliteMessage.store.server.port:0} > 0")
+  public FragmentStoreServer fragmentStoreServer(@Value("${splitSatelliteMessage.store.server.port}") int port,
+                                                 @Value("${splitSatelliteMessage.maxSessions}") int maxSessions) {
+    return new FragmentStoreServer(new InMemoryFragmentStore(maxSessions), port).start();
+  }
+
+  //Segments are kept for twice the session timeout, so every session they mention is closed before they're deleted
+  @Bean(destroyMethod = "close")
+  @ConditionalOnExpression("!'${splitSatelliteMessage.wal.directory:}'.isEmpty()")
+  public FragmentWriteAheadLog fragmentWriteAheadLog(@Value("${splitSatelliteMessage.wal.directory}") String directory,
+                                                     @Value("${splitSatelliteMessage.wal.segmentSize}") int segmentSize,
+                                                     @Value("${splitSatelliteMessage.wal.flushMillis}") long flushMillis,
+                                                     @Value("${splitSatelliteMessage.timeout}") long timeout) {
+    return new FragmentWriteAheadLog(Paths.get(directory), segmentSize, flushMillis, 2 * TimeUnit.SECONDS.toMillis(timeout));
+  }
+
+}
@@ -0,0 +1,9 @@
+package cloudcode.store;
+
+//The store couldn't be reached or answered something we don't understand, the fragment may or may not have been stored
+public class FragmentStoreException extends RuntimeException {
+
+    public FragmentStoreException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
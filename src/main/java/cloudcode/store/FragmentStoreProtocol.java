@@ -0,0 +1,141 @@
+package cloudcode.store;
+
+import cloudcode.entities.SatelliteMessage;
+import org.springframework.boot.json.JsonParseException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*Wire format between SocketFragmentStore and FragmentStoreServer. A request is an opcode followed by the transmission ID and its arguments,
+ADD: expected fragments, timeout and the fragment, POLL: the session ID. The answer to both is a status, the session ID and the fragments
+(only for closed sessions). Fragments go by satellite name, so both ends only have to agree on the constellation's names. Counts and word
+lengths are varints and words their UTF-8 bytes, so no message wraps around a fixed width field; both ends check them against the limits
+below, a reader never allocates for a count it was sent and a writer fails before it has written a fragment that's too large.*/
+final class FragmentStoreProtocol {
+
+    static final byte ADD = 1;
+    static final byte POLL = 2;
+
+    //Words of a single fragment and bytes of all of them together
+    static final int MAX_FRAGMENT_WORDS = 1 << 20;
+    static final int MAX_FRAGMENT_BYTES = 16 << 20;
+
+    private static final JoinResult.Status[] STATUSES = JoinResult.Status.values();
+
+    private FragmentStoreProtocol(){
+    }
+
+    //Throws IllegalArgumentException if the fragment is over the limits, in which case the output must be discarded
+    static void writeFragment(DataOutputStream output, SatelliteMessage fragment) throws IOException {
+        String[] message = fragment.getMessage();
+        if(message.length > MAX_FRAGMENT_WORDS){
+            throw new IllegalArgumentException("A fragment of " + message.length + " words is over the limit of the fragment store");
+        }
+
+        output.writeUTF(fragment.getName());
+        output.writeDouble(fragment.getDistance());
+        writeVarint(output, message.length);
+
+        long bytes = 0L;
+        for(String word : message){
+            output.writeBoolean(word != null);
+            if(word != null){
+                byte[] utf8 = word.getBytes(StandardCharsets.UTF_8);
+                bytes += utf8.length;
+                if(bytes > MAX_FRAGMENT_BYTES){
+                    throw new IllegalArgumentException("A fragment of more than " + MAX_FRAGMENT_BYTES + " bytes is over the limit of the fragment store");
+                }
+                writeVarint(output, utf8.length);
+                output.write(utf8);
+            }
+        }
+    }
+
+    static SatelliteMessage readFragment(DataInputStream input) throws IOException {
+        String name = input.readUTF();
+        double distance = input.readDouble();
+        String[] message = new String[readBounded(input, MAX_FRAGMENT_WORDS)];
+
+        int bytes = 0;
+        for(int i = 0; i < message.length; i++){
+            if(input.readBoolean()){
+                byte[] utf8 = new byte[readBounded(input, MAX_FRAGMENT_BYTES - bytes)];
+                input.readFully(utf8);
+                bytes += utf8.length;
+                message[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+        }
+
+        try{
+            return new SatelliteMessage(message, distance, name);
+        }
+        catch (JsonParseException e){
+            throw new IOException("Fragment of a satellite that isn't in the constellation: " + name, e);
+        }
+    }
+
+    static void writeResult(DataOutputStream output, JoinResult result) throws IOException {
+        output.writeByte(result.getStatus().ordinal());
+        output.writeLong(result.getSessionId());
+        writeVarint(output, result.getFragments().size());
+
+        for(SatelliteMessage fragment : result.getFragments()){
+            writeFragment(output, fragment);
+        }
+    }
+
+    static JoinResult readResult(DataInputStream input) throws IOException {
+        int status = input.readUnsignedByte();
+        long sessionId = input.readLong();
+        int count = readBounded(input, Integer.MAX_VALUE);
+
+        if(status >= STATUSES.length){
+            throw new IOException("Unknown fragment store status " + status);
+        }
+
+        //Every fragment takes some bytes of the stream, so the list only grows as far as they really arrive
+        List<SatelliteMessage> fragments = count == 0 ? Collections.emptyList() : new ArrayList<>(Math.min(count, 16));
+        for(int i = 0; i < count; i++){
+            fragments.add(readFragment(input));
+        }
+
+        switch (STATUSES[status]){
+            case PENDING:
+                return JoinResult.pending(sessionId);
+            case COMPLETE:
+                return JoinResult.complete(sessionId, fragments);
+            case EXPIRED:
+                return JoinResult.expired(sessionId, fragments);
+            default:
+                return JoinResult.rejected();
+        }
+    }
+
+    private static void writeVarint(DataOutputStream output, int value) throws IOException {
+        while((value & ~0x7F) != 0){
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readBounded(DataInputStream input, int max) throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7){
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0){
+                if(value < 0 || value > max){
+                    throw new IOException("Fragment store field of " + Integer.toUnsignedString(value) + " over its limit of " + max);
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in the fragment store protocol");
+    }
+}
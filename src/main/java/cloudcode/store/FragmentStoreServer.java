@@ -0,0 +1,136 @@
+package cloudcode.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*Serves a store over local sockets, one thread per connection. It stands in for a real shared store in tests and local setups: several app
+instances pointed at the same servers join the fragments of a transmission whatever instance each one hits.*/
+public final class FragmentStoreServer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FragmentStoreServer.class);
+
+    private final FragmentStore store;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    //Port 0 picks a free one, see getPort()
+    public FragmentStoreServer(FragmentStore store, int port){
+        this.store = store;
+        try{
+            this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        }
+        catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public FragmentStoreServer start(){
+        Thread acceptor = new Thread(this::accept, "FragmentStore-acceptor-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info("Fragment store listening on port {}", getPort());
+        return this;
+    }
+
+    public int getPort(){
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close(){
+        try{
+            serverSocket.close();
+        }
+        catch (IOException e){
+            logger.warn("Couldn't close the fragment store server", e);
+        }
+        for(Socket connection : connections){
+            closeQuietly(connection);
+        }
+        store.close();
+    }
+
+    private void accept(){
+        while(!serverSocket.isClosed()){
+            try{
+                Socket connection = serverSocket.accept();
+                connection.setTcpNoDelay(true);
+                connections.add(connection);
+
+                Thread handler = new Thread(() -> serve(connection), "FragmentStore-connection");
+                handler.setDaemon(true);
+                handler.start();
+            }
+            catch (IOException e){
+                if(!serverSocket.isClosed()){
+                    logger.warn("Couldn't accept a fragment store connection", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket connection){
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))){
+
+            while(true){
+                int operation = input.read();
+                if(operation < 0){
+                    return;
+                }
+
+                String transmissionId = input.readUTF();
+                JoinResult result;
+
+                switch (operation){
+                    case FragmentStoreProtocol.ADD:
+                        int expected = input.readInt();
+                        long timeoutMillis = input.readLong();
+                        result = store.add(transmissionId, FragmentStoreProtocol.readFragment(input), expected, timeoutMillis);
+                        break;
+                    case FragmentStoreProtocol.POLL:
+                        result = store.poll(transmissionId, input.readLong());
+                        break;
+                    default:
+                        throw new IOException("Unknown fragment store operation " + operation);
+                }
+
+                FragmentStoreProtocol.writeResult(output, result);
+                output.flush();
+            }
+        }
+        catch (EOFException | SocketException e){
+            //The client went away
+        }
+        catch (IOException e){
+            logger.warn("Closing a fragment store connection after an invalid request", e);
+        }
+        finally {
+            connections.remove(connection);
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(Socket socket){
+        try{
+            socket.close();
+        }
+        catch (IOException e){
+            //Nothing left to do with it
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package cloudcode.store;
+
+import cloudcode.entities.SatelliteMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/*Write-ahead log of the pending split fragments, so the sessions of an instance that is recycled can be rebuilt when it starts again. Every
+accepted fragment is appended as an ADD record and every closed session as a CLOSE one into memory-mapped segments of a fixed size: appending
+is a copy into the page cache, which already survives the process dying. A flusher thread forces the segments to disk every flushMillis or as
+soon as a writer waits for its record (group commit), so everyone who arrived during a flush shares the next one. A record is its length, the
+CRC32 of its body and the body (type, time, transmission ID and fragment), which lets the recovery stop at a torn write. Segments are deleted
+once all their records are older than the retention, by then every session they mention is closed.*/
+public final class FragmentWriteAheadLog implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FragmentWriteAheadLog.class);
+
+    //Type 1 was the ADD record of the 16 bit fragment encoding, the recovery skips the ones an older version left
+    private static final byte LEGACY_ADD = 1;
+    private static final byte CLOSE = 2;
+    private static final byte ADD = 3;
+    private static final int HEADER = 8;
+    private static final String PREFIX = "fragments-";
+    private static final String SUFFIX = ".wal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long flushMillis;
+    private final long retentionMillis;
+
+    private final ThreadLocal<Record> records = ThreadLocal.withInitial(Record::new);
+
+    //Guarded by this
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final List<Segment> unflushed = new ArrayList<>();
+    private Segment current;
+    private long nextSegment;
+    private long written;
+
+    //Guarded by flushMonitor
+    private final Object flushMonitor = new Object();
+    private long flushed;
+    private boolean flushRequested;
+    private volatile boolean running = true;
+    private final Thread flusher;
+
+    public FragmentWriteAheadLog(Path directory, int segmentSize, long flushMillis, long retentionMillis){
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushMillis = flushMillis;
+        this.retentionMillis = retentionMillis;
+
+        try{
+            Files.createDirectories(directory);
+        }
+        catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+
+        this.flusher = new Thread(this::flushLoop, "SplitJoiner-wal");
+        flusher.setDaemon(true);
+    }
+
+    /*Replays the segments left by a previous run and returns the fragments of the sessions that were still open, by transmission ID and in
+    the order they arrived. It must be called once, before the first append.*/
+    public synchronized List<RecoveredSession> recover(){
+        Map<String, RecoveredSession> open = new LinkedHashMap<>();
+
+        for(Path path : existingSegments()){
+            Segment segment = new Segment(path, sequenceOf(path), 0L);
+            segments.add(segment);
+            nextSegment = segment.sequence + 1;
+
+            try{
+                byte[] bytes = Files.readAllBytes(path);
+                segment.lastAppendMillis = replay(bytes, open);
+            }
+            catch (IOException e){
+                logger.warn("Couldn't read the write-ahead log segment {}", path, e);
+            }
+        }
+
+        if(!open.isEmpty()){
+            logger.info("Recovered {} pending split sessions from {}", open.size(), directory);
+        }
+
+        flusher.start();
+        return new ArrayList<>(open.values());
+    }
+
+    //Returns the position to wait for with awaitFlushed to know the fragment is on disk, or 0 if it couldn't be logged
+    public long appendAdd(String transmissionId, SatelliteMessage fragment){
+        Record record = encodeAdd(transmissionId, fragment);
+        return record == null ? 0L : append(record);
+    }
+
+    /*Encodes the ADD record of a fragment into the calling thread's buffer, so the caller can find out whether it can be logged before it
+    changes anything and append it later. Returns null if it can't: the fragment is still served from memory, it just won't survive a restart.
+    The record has to be appended before the same thread encodes another one.*/
+    public Record encodeAdd(String transmissionId, SatelliteMessage fragment){
+        Record record = records.get();
+        try{
+            record.begin(ADD, transmissionId);
+            FragmentStoreProtocol.writeFragment(record.output, fragment);
+        }
+        catch (IOException | IllegalArgumentException e){
+            logger.warn("A split fragment can't be encoded for the write-ahead log: {}", e.getMessage());
+            return null;
+        }
+        return record;
+    }
+
+    public long appendClose(String transmissionId){
+        Record record = records.get();
+        try{
+            record.begin(CLOSE, transmissionId);
+        }
+        catch (IOException e){
+            logger.warn("A closed split session can't be encoded for the write-ahead log: {}", e.getMessage());
+            return 0L;
+        }
+        return append(record);
+    }
+
+    //Blocks until a flush covered the position, asking the flusher not to wait for its next round
+    public void awaitFlushed(long position){
+        synchronized (flushMonitor){
+            if(flushed >= position){
+                return;
+            }
+            flushRequested = true;
+            flushMonitor.notifyAll();
+
+            boolean interrupted = false;
+            while(flushed < position && running){
+                try{
+                    flushMonitor.wait();
+                }
+                catch (InterruptedException e){
+                    interrupted = true;
+                }
+            }
+            if(interrupted){
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close(){
+        running = false;
+        synchronized (flushMonitor){
+            flushMonitor.notifyAll();
+        }
+        try{
+            flusher.join(1000);
+        }
+        catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    //Returns 0 if the record couldn't be appended, which like the rest of the log's failures only costs its durability
+    public long append(Record record){
+        int length = record.size() + HEADER;
+
+        if(length > segmentSize){
+            //It would never fit, we keep serving the fragment but it won't survive a restart
+            logger.warn("A split fragment of {} bytes doesn't fit in a write-ahead log segment", length);
+            return 0L;
+        }
+
+        synchronized (this){
+            if(current == null || current.buffer.remaining() < length){
+                try{
+                    rotate();
+                }
+                catch (IOException e){
+                    logger.warn("Couldn't open a new write-ahead log segment, a split fragment won't survive a restart", e);
+                    return 0L;
+                }
+            }
+
+            MappedByteBuffer buffer = current.buffer;
+            buffer.putInt(record.size());
+            buffer.putInt(record.crc());
+            buffer.put(record.bytes(), 0, record.size());
+            current.lastAppendMillis = record.timestamp;
+
+            written += length;
+            return written;
+        }
+    }
+
+    //Must be called holding the lock of the log
+    private void rotate() throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, nextSegment, SUFFIX));
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            //Mapping beyond the end grows the file with zeros, so the recovery stops where the last record ends
+            Segment segment = new Segment(path, nextSegment, System.currentTimeMillis());
+            segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+
+            if(current != null){
+                unflushed.add(current);
+            }
+            current = segment;
+            segments.add(segment);
+            nextSegment++;
+        }
+    }
+
+    private void flushLoop(){
+        while(running){
+            synchronized (flushMonitor){
+                if(!flushRequested){
+                    try{
+                        flushMonitor.wait(flushMillis);
+                    }
+                    catch (InterruptedException e){
+                        return;
+                    }
+                }
+                flushRequested = false;
+            }
+
+            flush();
+            deleteExpiredSegments();
+        }
+    }
+
+    private void flush(){
+        List<Segment> toFlush;
+        long position;
+
+        synchronized (this){
+            position = written;
+            toFlush = new ArrayList<>(unflushed);
+            unflushed.clear();
+            if(current != null){
+                toFlush.add(current);
+            }
+        }
+
+        synchronized (flushMonitor){
+            if(flushed >= position){
+                return;
+            }
+        }
+
+        //Forcing happens outside of the locks, so the writers keep appending meanwhile and the next flush takes them all
+        for(Segment segment : toFlush){
+            segment.buffer.force();
+        }
+
+        synchronized (flushMonitor){
+            flushed = Math.max(flushed, position);
+            flushMonitor.notifyAll();
+        }
+    }
+
+    private void deleteExpiredSegments(){
+        long now = System.currentTimeMillis();
+        List<Segment> expired = new ArrayList<>();
+
+        synchronized (this){
+            while(!segments.isEmpty() && segments.peekFirst() != current && segments.peekFirst().lastAppendMillis + retentionMillis < now){
+                expired.add(segments.pollFirst());
+            }
+            unflushed.removeAll(expired);
+        }
+
+        for(Segment segment : expired){
+            try{
+                Files.deleteIfExists(segment.path);
+            }
+            catch (IOException e){
+                logger.warn("Couldn't delete the write-ahead log segment {}", segment.path, e);
+            }
+        }
+    }
+
+    //Returns the time of the last valid record
+    private static long replay(byte[] bytes, Map<String, RecoveredSession> open) throws IOException {
+        CRC32 crc = new CRC32();
+        int position = 0;
+        long lastAppendMillis = 0L;
+
+        while(position + HEADER <= bytes.length){
+            int length = readInt(bytes, position);
+            int checksum = readInt(bytes, position + 4);
+
+            if(length <= 0 || position + HEADER + length > bytes.length){
+                break;
+            }
+
+            crc.reset();
+            crc.update(bytes, position + HEADER, length);
+            if((int) crc.getValue() != checksum){
+                logger.warn("Ignoring the torn tail of a write-ahead log segment");
+                break;
+            }
+
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes, position + HEADER, length));
+            byte type = input.readByte();
+            long timestamp = input.readLong();
+            String transmissionId = input.readUTF();
+            lastAppendMillis = timestamp;
+
+            if(type == CLOSE){
+                open.remove(transmissionId);
+            }
+            else if(type == ADD){
+                try{
+                    SatelliteMessage fragment = FragmentStoreProtocol.readFragment(input);
+                    if(input.available() > 0){
+                        throw new IOException("the fragment ends before its record");
+                    }
+                    open.computeIfAbsent(transmissionId, id -> new RecoveredSession(id, timestamp)).fragments.add(fragment);
+                }
+                catch (IOException e){
+                    //The satellite is no longer in the constellation, or the record doesn't hold a whole fragment
+                    logger.warn("Skipping a logged fragment: {}", e.getMessage());
+                }
+            }
+            else{
+                logger.warn("Skipping a write-ahead log record of type {}{}", type, type == LEGACY_ADD ? ", left by an older version" : "");
+            }
+
+            position += HEADER + length;
+        }
+
+        return lastAppendMillis;
+    }
+
+    private List<Path> existingSegments(){
+        List<Path> paths = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)){
+            stream.forEach(paths::add);
+        }
+        catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        //The sequence is zero padded, so the names sort in the order they were written
+        paths.sort(null);
+        return paths;
+    }
+
+    private static long sequenceOf(Path path){
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static int readInt(byte[] bytes, int position){
+        return (bytes[position] & 0xff) << 24 | (bytes[position + 1] & 0xff) << 16 | (bytes[position + 2] & 0xff) << 8 | (bytes[position + 3] & 0xff);
+    }
+
+    //Fragments of a session that was still open when the log was left behind
+    public static final class RecoveredSession {
+        private final String transmissionId;
+        private final long openedAt;
+        private final List<SatelliteMessage> fragments = new ArrayList<>(3);
+
+        private RecoveredSession(String transmissionId, long openedAt){
+            this.transmissionId = transmissionId;
+            this.openedAt = openedAt;
+        }
+
+        public String getTransmissionId() {
+            return transmissionId;
+        }
+
+        public long getOpenedAt() {
+            return openedAt;
+        }
+
+        public List<SatelliteMessage> getFragments() {
+            return fragments;
+        }
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long sequence;
+        private MappedByteBuffer buffer;
+        private long lastAppendMillis;
+
+        private Segment(Path path, long sequence, long lastAppendMillis){
+            this.path = path;
+            this.sequence = sequence;
+            this.lastAppendMillis = lastAppendMillis;
+        }
+    }
+
+    //Each thread encodes its records in its own buffer, so only the copy into the segment happens under the lock
+    public static final class Record extends ByteArrayOutputStream {
+        private static final int MAX_RETAINED_BYTES = 64 * 1024;
+
+        private final DataOutputStream output = new DataOutputStream(this);
+        private final CRC32 crc = new CRC32();
+        private long timestamp;
+
+        private Record(){
+            super(256);
+        }
+
+        private void begin(byte type, String transmissionId) throws IOException {
+            //A large fragment doesn't leave its buffer behind in the thread for good
+            if(buf.length > MAX_RETAINED_BYTES){
+                buf = new byte[256];
+            }
+            reset();
+            timestamp = System.currentTimeMillis();
+            output.writeByte(type);
+            output.writeLong(timestamp);
+            output.writeUTF(transmissionId);
+        }
+
+        private byte[] bytes(){
+            return buf;
+        }
+
+        private int crc(){
+            crc.reset();
+            crc.update(buf, 0, count);
+            return (int) crc.getValue();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package cloudcode.store;
+
+import cloudcode.entities.SatelliteMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*Store in the memory of the process, it's what backs the socket server and it can be used on its own to go through the store path in a single
+instance. Closed sessions are kept for as long as their timeout so the requests still waiting can poll them, and both the expired open
+sessions and the old closed ones are purged from time to time by the calls themselves.*/
+public final class InMemoryFragmentStore implements FragmentStore {
+
+    private static final long PURGE_INTERVAL_MILLIS = 1000;
+
+    private final ConcurrentMap<String, Session> open = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Closed> closed = new ConcurrentHashMap<>();
+    private final AtomicLong sessionIds = new AtomicLong();
+    private final AtomicLong lastPurge = new AtomicLong(System.currentTimeMillis());
+    private final int maxSessions;
+
+    public InMemoryFragmentStore(int maxSessions){
+        this.maxSessions = maxSessions;
+    }
+
+    @Override
+    public JoinResult add(String transmissionId, SatelliteMessage fragment, int expected, long timeoutMillis) {
+        long now = System.currentTimeMillis();
+        purge(now);
+
+        while(true){
+            //The size is just an estimate under contention, but that's enough to keep the table bounded
+            if(open.size() >= maxSessions && !open.containsKey(transmissionId)){
+                return JoinResult.rejected();
+            }
+
+            Session session = open.computeIfAbsent(transmissionId, id -> new Session(id, sessionIds.incrementAndGet(), expected, now + timeoutMillis, timeoutMillis));
+
+            synchronized (session){
+                if(session.closed){
+                    continue;
+                }
+                if(now > session.deadline){
+                    close(session, JoinResult.Status.EXPIRED, now);
+                    continue;
+                }
+
+                session.fragments.add(fragment);
+
+                if(session.fragments.size() < session.expected){
+                    return JoinResult.pending(session.id);
+                }
+
+                return close(session, JoinResult.Status.COMPLETE, now);
+            }
+        }
+    }
+
+    @Override
+    public JoinResult poll(String transmissionId, long sessionId) {
+        long now = System.currentTimeMillis();
+        Session session = open.get(transmissionId);
+
+        if(session != null && session.id == sessionId){
+            synchronized (session){
+                if(!session.closed){
+                    if(now <= session.deadline){
+                        return JoinResult.pending(sessionId);
+                    }
+                    return close(session, JoinResult.Status.EXPIRED, now);
+                }
+            }
+        }
+
+        Closed result = closed.get(sessionId);
+
+        //A session we don't know about was closed so long ago that it was purged, for the poller it expired
+        return result != null ? result.result : JoinResult.expired(sessionId, Collections.emptyList());
+    }
+
+    public int getOpenSessions(){
+        return open.size();
+    }
+
+    //Must be called while synchronized with the session
+    private JoinResult close(Session session, JoinResult.Status status, long now){
+        session.closed = true;
+        open.remove(session.transmissionId, session);
+
+        List<SatelliteMessage> fragments = Collections.unmodifiableList(session.fragments);
+        JoinResult result = status == JoinResult.Status.COMPLETE ? JoinResult.complete(session.id, fragments) : JoinResult.expired(session.id, fragments);
+        closed.put(session.id, new Closed(result, now + session.timeoutMillis));
+        return result;
+    }
+
+    //Only one caller purges at a time and at most once per interval
+    private void purge(long now){
+        long last = lastPurge.get();
+        if(now - last < PURGE_INTERVAL_MILLIS || !lastPurge.compareAndSet(last, now)){
+            return;
+        }
+
+        closed.values().removeIf(result -> result.keepUntil < now);
+
+        for(Map.Entry<String, Session> entry : open.entrySet()){
+            Session session = entry.getValue();
+            synchronized (session){
+                if(!session.closed && now > session.deadline){
+                    close(session, JoinResult.Status.EXPIRED, now);
+                }
+            }
+        }
+    }
+
+    private static final class Session {
+        private final String transmissionId;
+        private final long id;
+        private final int expected;
+        private final long deadline;
+        private final long timeoutMillis;
+        private final List<SatelliteMessage> fragments = new ArrayList<>(3);
+        private boolean closed;
+
+        private Session(String transmissionId, long id, int expected, long deadline, long timeoutMillis){
+            this.transmissionId = transmissionId;
+            this.id = id;
+            this.expected = expected;
+            this.deadline = deadline;
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+
+    private static final class Closed {
+        private final JoinResult result;
+        private final long keepUntil;
+
+        private Closed(JoinResult result, long keepUntil){
+            this.result = result;
+            this.keepUntil = keepUntil;
+        }
+    }
+}
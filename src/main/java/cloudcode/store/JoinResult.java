@@ -0,0 +1,54 @@
+package cloudcode.store;
+
+import cloudcode.entities.SatelliteMessage;
+
+import java.util.Collections;
+import java.util.List;
+
+//What a store answers about a session, the fragments are only there once it's closed
+public final class JoinResult {
+
+    public enum Status {
+        PENDING, COMPLETE, EXPIRED, REJECTED
+    }
+
+    private static final JoinResult REJECTED = new JoinResult(Status.REJECTED, -1, Collections.emptyList());
+
+    private final Status status;
+    private final long sessionId;
+    private final List<SatelliteMessage> fragments;
+
+    private JoinResult(Status status, long sessionId, List<SatelliteMessage> fragments){
+        this.status = status;
+        this.sessionId = sessionId;
+        this.fragments = fragments;
+    }
+
+    public static JoinResult pending(long sessionId){
+        return new JoinResult(Status.PENDING, sessionId, Collections.emptyList());
+    }
+
+    public static JoinResult complete(long sessionId, List<SatelliteMessage> fragments){
+        return new JoinResult(Status.COMPLETE, sessionId, fragments);
+    }
+
+    public static JoinResult expired(long sessionId, List<SatelliteMessage> fragments){
+        return new JoinResult(Status.EXPIRED, sessionId, fragments);
+    }
+
+    public static JoinResult rejected(){
+        return REJECTED;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    public List<SatelliteMessage> getFragments() {
+        return fragments;
+    }
+}
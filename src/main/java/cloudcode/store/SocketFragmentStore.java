@@ -0,0 +1,149 @@
+package cloudcode.store;
+
+import cloudcode.entities.SatelliteMessage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*Client of a FragmentStoreServer. Every call takes an idle connection (opening one if there's none) for a single request and answer, so
+concurrent callers don't wait for each other, and a connection that fails in the middle of a call is dropped instead of reused.*/
+public final class SocketFragmentStore implements FragmentStore {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+
+    private final InetSocketAddress address;
+    private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    public SocketFragmentStore(String host, int port){
+        this.address = new InetSocketAddress(host, port);
+    }
+
+    @Override
+    public JoinResult add(String transmissionId, SatelliteMessage fragment, int expected, long timeoutMillis) {
+        //Encoded before taking a connection, so a fragment over the protocol's limits fails without leaving half a request on it
+        ByteArrayOutputStream request = new ByteArrayOutputStream(256);
+        try{
+            DataOutputStream output = new DataOutputStream(request);
+            output.writeByte(FragmentStoreProtocol.ADD);
+            output.writeUTF(transmissionId);
+            output.writeInt(expected);
+            output.writeLong(timeoutMillis);
+            FragmentStoreProtocol.writeFragment(output, fragment);
+        }
+        catch (IOException e){
+            //Writing to memory only fails on a string too long for writeUTF
+            throw new IllegalArgumentException("The transmission ID is too long for the fragment store", e);
+        }
+
+        Connection connection = acquire();
+        try{
+            request.writeTo(connection.output);
+            connection.output.flush();
+
+            JoinResult result = FragmentStoreProtocol.readResult(connection.input);
+            release(connection);
+            return result;
+        }
+        catch (IOException e){
+            connection.close();
+            throw new FragmentStoreException("Fragment store " + address + " failed adding a fragment", e);
+        }
+    }
+
+    @Override
+    public JoinResult poll(String transmissionId, long sessionId) {
+        Connection connection = acquire();
+        try{
+            DataOutputStream output = connection.output;
+            output.writeByte(FragmentStoreProtocol.POLL);
+            output.writeUTF(transmissionId);
+            output.writeLong(sessionId);
+            output.flush();
+
+            JoinResult result = FragmentStoreProtocol.readResult(connection.input);
+            release(connection);
+            return result;
+        }
+        catch (IOException e){
+            connection.close();
+            throw new FragmentStoreException("Fragment store " + address + " failed polling a session", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while((connection = idle.poll()) != null){
+            connection.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return address.getHostString() + ":" + address.getPort();
+    }
+
+    private Connection acquire(){
+        Connection connection = idle.poll();
+        if(connection != null){
+            return connection;
+        }
+
+        Socket socket = new Socket();
+        try{
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+            return new Connection(socket);
+        }
+        catch (IOException e){
+            try{
+                socket.close();
+            }
+            catch (IOException suppressed){
+                e.addSuppressed(suppressed);
+            }
+            throw new FragmentStoreException("Couldn't connect to the fragment store " + address, e);
+        }
+    }
+
+    private void release(Connection connection){
+        idle.offer(connection);
+        //close() may have drained the queue before we put it back
+        if(closed && idle.remove(connection)){
+            connection.close();
+        }
+    }
+
+    private static final class Connection {
+        private final Socket socket;
+        private final DataInputStream input;
+        private final DataOutputStream output;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void close(){
+            try{
+                socket.close();
+            }
+            catch (IOException e){
+                //Nothing left to do with it
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package cloudcode.warmup;
+
+import cloudcode.admission.AdmissionGate;
+import cloudcode.entities.Constellation;
+import cloudcode.metrics.HotPathMetrics;
+import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/*Sends a synthetic workload to /topsecret and /topsecret_split through this instance's own port before it takes traffic, so the first real
+requests don't find the solvers interpreted, Jackson's serializers unbuilt nor the messages of the errors unloaded. Spring Boot only marks the
+application as ready (/actuator/health/readiness) once the runners are done, and the warm-up refuses traffic explicitly while it runs.
+It's best effort: a failed or slow warm-up is logged and the instance starts anyway. Once it's done the metrics it left are cleared, so
+they only count real traffic.*/
+@Component
+public class WarmUpRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpRunner.class);
+    private static final String TRANSMISSION_PREFIX = "warmup-";
+    private static final String[] MESSAGE = {"este", "es", "un", "mensaje", "de", "prueba"};
+
+    //Position the warm-up transmissions come from, the distances to the satellites are computed from it so they're solvable
+    private static final double X = -100.0;
+    private static final double Y = 75.5;
+
+    private final ApplicationContext applicationContext;
+    private final Environment environment;
+    private final SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService;
+    private final List<AdmissionGate> admissionGates;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${warmup.enabled}")
+    private boolean enabled;
+
+    @Value("${warmup.iterations}")
+    private int iterations;
+
+    @Value("${warmup.timeoutSeconds}")
+    private long timeoutSeconds;
+
+    public WarmUpRunner(ApplicationContext applicationContext, Environment environment,
+                        SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService, List<AdmissionGate> admissionGates){
+        this.applicationContext = applicationContext;
+        this.environment = environment;
+        this.splitSatelliteMessagesProcessorService = splitSatelliteMessagesProcessorService;
+        this.admissionGates = admissionGates;
+    }
+
+    @Override
+    public void run(ApplicationArguments args){
+        String port = environment.getProperty("local.server.port");
+        if(!enabled || iterations <= 0 || port == null){
+            return;
+        }
+
+        AvailabilityChangeEvent.publish(applicationContext, ReadinessState.REFUSING_TRAFFIC);
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5)).build();
+        String baseUrl = "http://localhost:" + port;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        long start = System.nanoTime();
+
+        long firstTopSecret = -1L, lastTopSecret = -1L, firstSplit = -1L, lastSplit = -1L;
+        int completed = 0, failed = 0;
+
+        try{
+            Constellation constellation = Constellation.current();
+            String transmission = transmission(constellation, 1.0);
+            //Nothing intersects, so the error responses are warmed up as well
+            String unsolvableTransmission = transmission(constellation, 0.01);
+
+            for(int i = 0; i < iterations && System.nanoTime() < deadline; i++){
+                long requestStart = System.nanoTime();
+                failed += post(client, baseUrl + "/topsecret", transmission) == HttpStatus.OK.value() ? 0 : 1;
+                lastTopSecret = System.nanoTime() - requestStart;
+                firstTopSecret = i == 0 ? lastTopSecret : firstTopSecret;
+
+                if(i % 10 == 9){
+                    post(client, baseUrl + "/topsecret", unsolvableTransmission);
+                }
+
+                requestStart = System.nanoTime();
+                failed += split(client, baseUrl + "/topsecret_split/" + TRANSMISSION_PREFIX + i + "/", constellation);
+                lastSplit = System.nanoTime() - requestStart;
+                firstSplit = i == 0 ? lastSplit : firstSplit;
+
+                completed++;
+            }
+        }
+        catch (IOException e){
+            logger.warn("The warm-up stopped after {} iterations: {}", completed, e.getMessage());
+        }
+        catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        catch (RuntimeException e){
+            logger.warn("The warm-up failed after {} iterations", completed, e);
+        }
+        finally {
+            splitSatelliteMessagesProcessorService.resetAdaptiveTimeout();
+            resetMetrics();
+            //Spring Boot does it too once the runners return, it's published here so it's plain the instance is ready whatever the warm-up did
+            AvailabilityChangeEvent.publish(applicationContext, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+
+        logger.info("Warm-up of {} iterations ({} failed requests) took {} ms. /topsecret took {} us on the first request and {} us on the last one, "
+                    + "/topsecret_split {} us and {} us", completed, failed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    TimeUnit.NANOSECONDS.toMicros(firstTopSecret), TimeUnit.NANOSECONDS.toMicros(lastTopSecret),
+                    TimeUnit.NANOSECONDS.toMicros(firstSplit), TimeUnit.NANOSECONDS.toMicros(lastSplit));
+    }
+
+    private void resetMetrics(){
+        splitSatelliteMessagesProcessorService.resetMetrics();
+        for(AdmissionGate admissionGate : admissionGates){
+            admissionGate.resetMetrics();
+        }
+        HotPathMetrics.reset();
+    }
+
+    private int post(HttpClient client, String url, String body) throws IOException, InterruptedException {
+        return client.send(request(url, body), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    //Every satellite sends its fragment at once and they wait for each other in the session, returns how many didn't get the location
+    private int split(HttpClient client, String url, Constellation constellation) throws IOException, InterruptedException {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(constellation.size());
+        for(int id = 0; id < constellation.size(); id++){
+            String fragment = objectMapper.writeValueAsString(Map.of("distance", distance(constellation, id, 1.0), "message", fragment(id)));
+            responses.add(client.sendAsync(request(url + constellation.getName(id), fragment), HttpResponse.BodyHandlers.discarding()));
+        }
+
+        int failed = 0;
+        for(CompletableFuture<HttpResponse<Void>> response : responses){
+            try{
+                failed += response.get().statusCode() == HttpStatus.OK.value() ? 0 : 1;
+            }
+            catch (ExecutionException e){
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            }
+        }
+        return failed;
+    }
+
+    private HttpRequest request(String url, String body){
+        return HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(timeoutSeconds))
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private String transmission(Constellation constellation, double scale) throws JsonProcessingException {
+        List<Map<String, Object>> satellites = new ArrayList<>(constellation.size());
+        for(int id = 0; id < constellation.size(); id++){
+            satellites.add(Map.of("name", constellation.getName(id), "distance", distance(constellation, id, scale), "message", fragment(id)));
+        }
+        return objectMapper.writeValueAsString(Map.of("satellites", satellites));
+    }
+
+    private static double distance(Constellation constellation, int id, double scale){
+        return scale * Math.hypot(X - constellation.getX(id), Y - constellation.getY(id));
+    }
+
+    //Each satellite misses a different word, so the merger has to put the message together
+    private static String[] fragment(int id){
+        String[] fragment = MESSAGE.clone();
+        fragment[id % fragment.length] = "";
+        return fragment;
+    }
+}
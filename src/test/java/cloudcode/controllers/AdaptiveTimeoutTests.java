@@ -0,0 +1,73 @@
+package cloudcode.controllers;
+
+import cloudcode.concurrent.StreamingHistogram;
+import cloudcode.entities.SplitTimeoutMetrics;
+import cloudcode.services.AdaptiveTimeout;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class AdaptiveTimeoutTests {
+
+    @Test
+    public void verifyHistogramPercentiles() {
+        StreamingHistogram histogram = new StreamingHistogram();
+        assertThat(histogram.getPercentile(99.0), equalTo(-1L));
+
+        for(long value = 1; value <= 10000; value++){
+            histogram.record(value);
+        }
+
+        //Every bucket is at most 1/16 of its values wide, and the percentile is its upper bound
+        assertThat(histogram.getCount(), equalTo(10000L));
+        assertThat((double) histogram.getPercentile(50.0), both(greaterThanOrEqualTo(5000.0)).and(lessThanOrEqualTo(5000.0 * 17 / 16)));
+        assertThat((double) histogram.getPercentile(99.0), both(greaterThanOrEqualTo(9900.0)).and(lessThanOrEqualTo(9900.0 * 17 / 16)));
+        assertThat(histogram.getPercentile(100.0), greaterThanOrEqualTo(10000L));
+
+        histogram.decay();
+        assertThat((double) histogram.getCount(), closeTo(5000.0, 300.0));
+    }
+
+    @Test
+    public void verifyTimeoutFollowsTheArrivalGaps() {
+        AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout(true, 30000, 1000, 20000, 90.0, 10);
+
+        //Not enough samples yet, the fixed timeout is kept
+        for(int i = 0; i < 9; i++){
+            adaptiveTimeout.recordCompleted(3000);
+        }
+        adaptiveTimeout.refresh();
+        assertThat(adaptiveTimeout.getTimeoutMillis(), equalTo(30000L));
+
+        adaptiveTimeout.recordCompleted(3000);
+        adaptiveTimeout.recordFragment("kenobi", 0);
+        adaptiveTimeout.recordFragment("sato", 3000);
+        adaptiveTimeout.refresh();
+        assertThat((double) adaptiveTimeout.getTimeoutMillis(), closeTo(3000.0, 3000.0 / 16));
+
+        //Fast links are bounded by the minimum, and the expirations push the deadline up to the maximum
+        for(int i = 0; i < 1000; i++){
+            adaptiveTimeout.recordCompleted(5);
+        }
+        adaptiveTimeout.refresh();
+        assertThat(adaptiveTimeout.getTimeoutMillis(), equalTo(1000L));
+
+        for(int i = 0; i < 1000; i++){
+            adaptiveTimeout.recordExpired(15000);
+        }
+        adaptiveTimeout.refresh();
+        assertThat(adaptiveTimeout.getTimeoutMillis(), equalTo(20000L));
+
+        SplitTimeoutMetrics metrics = adaptiveTimeout.getMetrics();
+        assertThat(metrics.getOverall().getCount(), equalTo(2010L));
+        assertThat(metrics.getSatellites().keySet(), contains("kenobi", "sato"));
+        assertThat(metrics.getSatellites().get("sato").getBuckets(), hasSize(1));
+    }
+}
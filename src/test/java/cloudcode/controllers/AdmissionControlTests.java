@@ -0,0 +1,140 @@
+package cloudcode.controllers;
+
+import cloudcode.admission.AdmissionGate;
+import cloudcode.admission.TooManyRequestsResponses;
+import cloudcode.concurrent.HashedWheelTimer;
+import cloudcode.entities.AdmissionMetrics;
+import cloudcode.entities.SatelliteMessage;
+import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import cloudcode.store.FragmentStore;
+import cloudcode.store.FragmentStoreException;
+import cloudcode.store.JoinResult;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class AdmissionControlTests {
+
+    private final TooManyRequestsResponses tooManyRequestsResponses = new TooManyRequestsResponses("busy");
+
+    @Test
+    public void verifyRateLimiterShedsWithRetryAfter() {
+        AdmissionGate gate = new AdmissionGate("test", 0, 2, 5000, tooManyRequestsResponses);
+
+        assertThat(gate.tryAdmit(), nullValue());
+        assertThat(gate.tryAdmit(), nullValue());
+
+        //The period refills in at most 5 seconds, rounded up
+        ResponseEntity<String> shed = gate.tryAdmit();
+        assertThat(shed.getStatusCode(), equalTo(HttpStatus.TOO_MANY_REQUESTS));
+        assertThat(Integer.parseInt(shed.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)), both(greaterThanOrEqualTo(1)).and(lessThanOrEqualTo(5)));
+
+        AdmissionMetrics metrics = gate.getMetrics();
+        assertThat(metrics.getAdmitted(), equalTo(2L));
+        assertThat(metrics.getShedRateLimited(), equalTo(1L));
+        assertThat(metrics.getAvailablePermissions(), equalTo(0));
+    }
+
+    @Test
+    public void verifyBulkheadShedsWhileFull() {
+        AdmissionGate gate = new AdmissionGate("test", 1, 0, 1000, tooManyRequestsResponses);
+
+        assertThat(gate.tryAdmit(), nullValue());
+        assertThat(gate.getMetrics().getInFlight(), equalTo(1));
+
+        ResponseEntity<String> shed = gate.tryAdmit();
+        assertThat(shed.getStatusCode(), equalTo(HttpStatus.TOO_MANY_REQUESTS));
+        assertThat(shed.getHeaders().getFirst(HttpHeaders.RETRY_AFTER), equalTo("1"));
+        assertThat(shed.getBody(), equalTo("busy"));
+
+        gate.release();
+        assertThat(gate.tryAdmit(), nullValue());
+        assertThat(gate.getMetrics().getShedBulkheadFull(), equalTo(1L));
+    }
+
+    @Test
+    public void verifySessionBudgetShedsWithRetryAfter() throws Throwable {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        HashedWheelTimer timer = new HashedWheelTimer("admission-timer", 100, TimeUnit.MILLISECONDS, 64);
+
+        try{
+            SplitSatelliteMessagesProcessorService service = new SplitSatelliteMessagesProcessorService(messageSource, new TooManyRequestsResponses("busy"), timer, Optional.empty(), Optional.empty());
+            ReflectionTestUtils.setField(service, "timeout", 7L);
+            ReflectionTestUtils.setField(service, "maxSessions", 1);
+            ReflectionTestUtils.setField(service, "completionPolicyNames", "");
+            service.start();
+
+            SatelliteMessage kenobi = new SatelliteMessage(new String[]{"este", "", "", "mensaje", ""}, 100.0, "kenobi");
+            service.addSatelliteMessage("first", kenobi);
+
+            //Without any completed session to learn from, the client is told to come back after the whole timeout
+            ResponseEntity shed = service.addSatelliteMessage("second", kenobi).get(1, TimeUnit.SECONDS);
+            assertThat(shed.getStatusCode(), equalTo(HttpStatus.TOO_MANY_REQUESTS));
+            assertThat(shed.getHeaders().getFirst(HttpHeaders.RETRY_AFTER), equalTo("7"));
+            assertThat(service.getMetrics().getShedFragments(), equalTo(1L));
+        }
+        finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void verifyStoreFailuresAreNotShed() throws Throwable {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        HashedWheelTimer timer = new HashedWheelTimer("admission-timer", 10, TimeUnit.MILLISECONDS, 64);
+
+        //Adding the first transmission's fragment fails, the second one is added but the store never answers its polls
+        FragmentStore failingStore = new FragmentStore() {
+            @Override
+            public JoinResult add(String transmissionId, SatelliteMessage fragment, int expected, long timeoutMillis) {
+                if(transmissionId.equals("unavailable")){
+                    throw new FragmentStoreException("unavailable", new IOException());
+                }
+                return JoinResult.pending(1L);
+            }
+
+            @Override
+            public JoinResult poll(String transmissionId, long sessionId) {
+                throw new FragmentStoreException("unreachable", new IOException());
+            }
+        };
+
+        SplitSatelliteMessagesProcessorService service = new SplitSatelliteMessagesProcessorService(messageSource, tooManyRequestsResponses, timer, Optional.of(failingStore), Optional.empty());
+        try{
+            ReflectionTestUtils.setField(service, "timeout", 1L);
+            ReflectionTestUtils.setField(service, "maxSessions", 10);
+            ReflectionTestUtils.setField(service, "pollMillis", 10L);
+            ReflectionTestUtils.setField(service, "completionPolicyNames", "");
+            service.start();
+
+            SatelliteMessage kenobi = new SatelliteMessage(new String[]{"este", "", "", "mensaje", ""}, 100.0, "kenobi");
+            assertThat(service.addSatelliteMessage("unavailable", kenobi).get(1, TimeUnit.SECONDS).getStatusCode(), equalTo(HttpStatus.SERVICE_UNAVAILABLE));
+
+            //Given up on twice the timeout after the session's deadline
+            assertThat(service.addSatelliteMessage("unreachable", kenobi).get(5, TimeUnit.SECONDS).getStatusCode(), equalTo(HttpStatus.GATEWAY_TIMEOUT));
+            assertThat(service.getMetrics().getShedFragments(), equalTo(0L));
+        }
+        finally {
+            service.shutdown();
+            timer.stop();
+        }
+    }
+}
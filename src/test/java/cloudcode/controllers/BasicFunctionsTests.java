@@ -1,9 +1,15 @@
 package cloudcode.controllers;
 
 import cloudcode.BasicFunctions;
+import cloudcode.entities.Constellation;
 import cloudcode.entities.Location;
+import cloudcode.entities.SatelliteMessage;
 import cloudcode.exceptions.LocationProcessingException;
 import cloudcode.exceptions.MessageProcessingException;
+import cloudcode.solvers.BatchTrilateration;
+import cloudcode.solvers.LocationResult;
+import cloudcode.solvers.MultilaterationSolver;
+import cloudcode.solvers.TrilaterationSolver;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -118,4 +124,137 @@ public class BasicFunctionsTests {
             assertThat(e.getMessage(), equalTo(""));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void verifyMessageMergeOfAnyAmountOfFragments() throws Throwable {
+        //Single word messages and more than 3 fragments, the word most fragments agree on wins and a tie leaves it empty
+        List<String[]> fragments = new ArrayList<>();
+        fragments.add(new String[]{"hola"});
+        fragments.add(new String[]{"", " hola "});
+        assertThat(BasicFunctions.GetMessage(fragments), equalTo(new String[]{"hola"}));
+
+        fragments.clear();
+        fragments.add(new String[]{"", "este", "es", "un", "mensaje"});
+        fragments.add(new String[]{"este", "no", "", "mensaje"});
+        fragments.add(new String[]{"", "", "es", "", "mensaje"});
+        fragments.add(new String[]{"", "", "", "otro", ""});
+        fragments.add(new String[]{"este", null, "", "mensaje"});
+        assertThat(BasicFunctions.GetMessage(fragments), equalTo(new String[]{"este", "es", "", "mensaje"}));
+    }
+
+    @Test
+    public void verifyTrilaterationSolverReusesResult() throws Throwable {
+        TrilaterationSolver solver = new TrilaterationSolver(-500.0, -200.0, 500.0, 100.0, 100.0, -100.0);
+        LocationResult result = new LocationResult();
+
+        assertThat(solver.solve(testDistances[0], testDistances[1], testDistances[2], result), equalTo(true));
+        assertThat(result.getX(), closeTo(correctCalculatedLocationX, 0.000001));
+        assertThat(result.getY(), closeTo(correctCalculatedLocationY, 0.000001));
+
+        //The same holder is reused for a transmission without solution
+        assertThat(solver.solve(testDistancesInvalid[0], testDistancesInvalid[1], testDistancesInvalid[2], result), equalTo(false));
+        assertThat(result.hasCandidates(), equalTo(false));
+    }
+
+    @Test
+    public void verifyLinearTrilaterationFallbacks() throws Throwable {
+        TrilaterationSolver solver = new TrilaterationSolver(-500.0, -200.0, 500.0, 100.0, 100.0, -100.0, 0.01);
+        LocationResult result = new LocationResult();
+
+        //A reading slightly off is accepted within the configured tolerance
+        assertThat(solver.isLinear(), equalTo(true));
+        assertThat(solver.solve(testDistances[0], testDistances[1], testDistances[2] + 0.001, result), equalTo(true));
+        assertThat(result.getX(), closeTo(correctCalculatedLocationX, 0.01));
+        assertThat(result.getY(), closeTo(correctCalculatedLocationY, 0.01));
+
+        //An inconsistent reading of a close satellite barely moves the point away from the far circles, every circle is checked
+        TrilaterationSolver closeSatelliteSolver = new TrilaterationSolver(0.0, 0.0, 100.0, 0.0, 0.0, 100.0, 0.001);
+        assertThat(closeSatelliteSolver.solve(99.0, Math.hypot(100.0, 99.0), 1.02, result), equalTo(false));
+        assertThat(result.getResidual(), greaterThan(0.01));
+        assertThat(closeSatelliteSolver.solve(99.0, Math.hypot(100.0, 99.0), 1.0, result), equalTo(true));
+
+        //With collinear satellites the linear system can't be inverted and the circles are intersected by pairs
+        TrilaterationSolver collinearSolver = new TrilaterationSolver(0.0, 0.0, 100.0, 0.0, 200.0, 0.0);
+        assertThat(collinearSolver.isLinear(), equalTo(false));
+        assertThat(collinearSolver.solve(50.0, 50.0, 150.0, result), equalTo(true));
+        assertThat(result.hasCandidates(), equalTo(true));
+        assertThat(result.getX(), closeTo(50.0, 0.000001));
+        assertThat(result.getY(), closeTo(0.0, 0.000001));
+    }
+
+    @Test
+    public void verifyMultilaterationLocationCalculation() throws Throwable {
+        Location[] satelliteLocations = new Location[]{new Location(-500.0, -200.0), new Location(500.0, 100.0), new Location(100.0, -100.0)};
+        Location location = BasicFunctions.GetLocation(satelliteLocations, testDistances);
+
+        assertThat(location.getX(), closeTo(correctCalculatedLocationX, 0.000001));
+        assertThat(location.getY(), closeTo(correctCalculatedLocationY, 0.000001));
+
+        //Readings from more satellites with some noise are still solved by least squares and the residual is reported
+        MultilaterationSolver solver = new MultilaterationSolver(MultilaterationSolver.DEFAULT_MAX_ITERATIONS, 0.5);
+        MultilaterationSolver.Workspace workspace = new MultilaterationSolver.Workspace();
+        LocationResult result = new LocationResult();
+        int count = 24;
+        double[] xs = new double[count], ys = new double[count], radiuses = new double[count];
+
+        for(int i = 0; i < count; i++){
+            xs[i] = 1000.0 * Math.cos(i * 2.0 * Math.PI / count);
+            ys[i] = 700.0 * Math.sin(i * 2.0 * Math.PI / count);
+            radiuses[i] = Math.hypot(xs[i] - 120.0, ys[i] + 40.0) + ((i % 2 == 0) ? 0.1 : -0.1);
+        }
+
+        assertThat(solver.solve(xs, ys, radiuses, count, workspace, result), equalTo(true));
+        assertThat(result.getX(), closeTo(120.0, 0.1));
+        assertThat(result.getY(), closeTo(-40.0, 0.1));
+        assertThat(result.getResidual(), lessThanOrEqualTo(0.5));
+        assertThat(result.getIterations(), lessThanOrEqualTo(MultilaterationSolver.DEFAULT_MAX_ITERATIONS));
+    }
+
+    @Test
+    public void verifyBatchLocationCalculation() throws Throwable {
+        int count = 20000;
+        double[] rKenobi = new double[count], rSato = new double[count], rSkywalker = new double[count];
+        double[] outX = new double[count], outY = new double[count];
+        long[] status = new long[BatchTrilateration.statusWords(count)];
+
+        //Every third transmission can't be solved
+        for(int i = 0; i < count; i++){
+            Double[] distances = (i % 3 == 0) ? testDistancesInvalid : testDistances;
+            rKenobi[i] = distances[0];
+            rSato[i] = distances[1];
+            rSkywalker[i] = distances[2];
+        }
+
+        BasicFunctions.GetLocations(rKenobi, rSato, rSkywalker, outX, outY, status);
+
+        for(int i = 0; i < count; i++){
+            assertThat(BatchTrilateration.isSolved(status, i), equalTo(i % 3 != 0));
+            if(i % 3 != 0){
+                assertThat(outX[i], closeTo(correctCalculatedLocationX, 0.000001));
+                assertThat(outY[i], closeTo(correctCalculatedLocationY, 0.000001));
+            }
+        }
+    }
+
+    @Test
+    public void verifyConstellationLookup() throws Throwable {
+        Constellation constellation = Constellation.current();
+
+        //IDs follow the alphabetical order of the names and the lookup ignores the case
+        assertThat(constellation.size(), equalTo(3));
+        assertThat(constellation.indexOf("KENOBI"), equalTo(0));
+        assertThat(constellation.indexOf("sAtO"), equalTo(1));
+        assertThat(constellation.indexOf("skywalker".toCharArray(), 0, 9), equalTo(2));
+        assertThat(constellation.indexOf("vader"), equalTo(-1));
+
+        //The readings can come in any order
+        SatelliteMessage[] satelliteMessages = new SatelliteMessage[]{
+                new SatelliteMessage(new String[]{"este"}, testDistance.SKYWALKER.distance, "Skywalker"),
+                new SatelliteMessage(new String[]{"este"}, testDistance.KENOBI.distance, "Kenobi"),
+                new SatelliteMessage(new String[]{"este"}, testDistance.SATO.distance, "Sato")};
+
+        Location location = BasicFunctions.GetLocation(satelliteMessages);
+        assertThat(location.getX(), closeTo(correctCalculatedLocationX, 0.000001));
+        assertThat(location.getY(), closeTo(correctCalculatedLocationY, 0.000001));
+    }
+}
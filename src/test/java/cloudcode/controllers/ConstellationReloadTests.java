@@ -0,0 +1,69 @@
+package cloudcode.controllers;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = "constellation.location=file:${java.io.tmpdir}/topsecret-constellation-reload-test.json")
+public class ConstellationReloadTests {
+    private static final String SECRET = "test-reload-secret";
+    private static final Path LOCATION = Paths.get(System.getProperty("java.io.tmpdir"), "topsecret-constellation-reload-test.json");
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    public void verifyReloadNeedsTheSecret() throws Throwable {
+        assertThat(reload(null).statusCode(), equalTo(HttpURLConnection.HTTP_FORBIDDEN));
+        assertThat(reload("wrong-secret").statusCode(), equalTo(HttpURLConnection.HTTP_FORBIDDEN));
+        assertThat(reload(SECRET).statusCode(), equalTo(HttpURLConnection.HTTP_OK));
+    }
+
+    @Test
+    public void verifyReloadFromTheExternalLocation() throws Throwable {
+        try{
+            Files.writeString(LOCATION, "{\"satellites\": [{\"name\": \"kenobi\", \"x\": -500.0, \"y\": -200.0}, {\"name\": \"skywalker\", \"x\": 100.0, \"y\": -100.0},"
+                                        + " {\"name\": \"sato\", \"x\": 500.0, \"y\": 100.0}, {\"name\": \"yoda\", \"x\": 0.0, \"y\": 300.0}]}");
+
+            HttpResponse<String> response = reload(SECRET);
+            assertThat(response.statusCode(), equalTo(HttpURLConnection.HTTP_OK));
+            assertThat(response.body(), containsString("yoda"));
+        }
+        finally {
+            //Without the file the packaged constellation is loaded again
+            Files.deleteIfExists(LOCATION);
+            HttpResponse<String> response = reload(SECRET);
+            assertThat(response.statusCode(), equalTo(HttpURLConnection.HTTP_OK));
+            assertThat(response.body(), not(containsString("yoda")));
+        }
+    }
+
+    private HttpResponse<String> reload(String secret) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + "/constellation/reload"))
+                                                 .POST(HttpRequest.BodyPublishers.noBody());
+        if(secret != null){
+            request.header("X-Reload-Secret", secret);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,63 @@
+package cloudcode.controllers;
+
+import cloudcode.logging.EventCategory;
+import cloudcode.logging.EventLog;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.MDC;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class EventLogTests {
+
+    @After
+    public void restoreSampling() {
+        EventLog.configure("default=0.01,solver=0.01");
+    }
+
+    @Test
+    public void verifyCategoriesFollowTheirRates() {
+        EventCategory solver = EventLog.category("solver");
+        EventCategory other = EventLog.category("test");
+
+        EventLog.configure("default=1,solver=0");
+        assertThat(solver.getRate(), equalTo(0.0));
+        assertThat(other.getRate(), equalTo(1.0));
+        assertThat(EventLog.category("new").getRate(), equalTo(1.0));
+
+        for(int i = 0; i < 1000; i++){
+            assertThat(solver.isSampled(), equalTo(false));
+            assertThat(other.isSampled(), equalTo(true));
+        }
+
+        EventLog.configure("test=0.5");
+        assertThat(solver.getRate(), equalTo(EventLog.DEFAULT_RATE));
+
+        int sampled = 0;
+        for(int i = 0; i < 10000; i++){
+            sampled += other.isSampled() ? 1 : 0;
+        }
+        assertThat(sampled, both(greaterThan(4000)).and(lessThan(6000)));
+    }
+
+    @Test
+    public void verifyFieldsAreRemovedAfterAnEvent() {
+        EventLog.configure("test=1");
+        EventLog.category("test").log("Event at ({},{})", "x", 1.0, "y", 2.0);
+
+        assertThat(MDC.get("x"), nullValue());
+        assertThat(MDC.get("event"), nullValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyInvalidRatesAreRejected() {
+        EventLog.configure("solver=2");
+    }
+}
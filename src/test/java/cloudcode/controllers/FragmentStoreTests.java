@@ -0,0 +1,210 @@
+package cloudcode.controllers;
+
+import cloudcode.admission.TooManyRequestsResponses;
+import cloudcode.concurrent.HashedWheelTimer;
+import cloudcode.entities.SatelliteMessage;
+import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import cloudcode.store.ConsistentHashFragmentStore;
+import cloudcode.store.FragmentStore;
+import cloudcode.store.FragmentStoreServer;
+import cloudcode.store.InMemoryFragmentStore;
+import cloudcode.store.JoinResult;
+import cloudcode.store.SocketFragmentStore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class FragmentStoreTests {
+
+    private static final SatelliteMessage KENOBI = new SatelliteMessage(new String[]{"este", "", "", "mensaje", ""}, 100.0, "kenobi");
+    private static final SatelliteMessage SKYWALKER = new SatelliteMessage(new String[]{"", "es", "", "", "secreto"}, 115.5, "skywalker");
+    private static final SatelliteMessage SATO = new SatelliteMessage(new String[]{"este", "", "un", "", ""}, 142.7, "sato");
+
+    @Test
+    public void verifyStoreJoinsFragments() {
+        InMemoryFragmentStore store = new InMemoryFragmentStore(10);
+
+        JoinResult first = store.add("transmission", KENOBI, 3, 10000);
+        JoinResult second = store.add("transmission", SKYWALKER, 3, 10000);
+        assertThat(first.getStatus(), equalTo(JoinResult.Status.PENDING));
+        assertThat(second.getSessionId(), equalTo(first.getSessionId()));
+        assertThat(store.poll("transmission", first.getSessionId()).getStatus(), equalTo(JoinResult.Status.PENDING));
+
+        //The fragment that completes the session gets every fragment, and so do the requests polling it
+        JoinResult third = store.add("transmission", SATO, 3, 10000);
+        assertThat(third.getStatus(), equalTo(JoinResult.Status.COMPLETE));
+        assertThat(third.getFragments(), contains(KENOBI, SKYWALKER, SATO));
+        assertThat(store.poll("transmission", first.getSessionId()).getFragments(), contains(KENOBI, SKYWALKER, SATO));
+        assertThat(store.getOpenSessions(), equalTo(0));
+
+        //The same transmission ID starts a new session once the previous one is closed
+        assertThat(store.add("transmission", KENOBI, 3, 10000).getSessionId(), not(equalTo(first.getSessionId())));
+    }
+
+    @Test
+    public void verifyStoreExpiresSessions() throws Throwable {
+        InMemoryFragmentStore store = new InMemoryFragmentStore(1);
+
+        JoinResult first = store.add("first", KENOBI, 3, 50);
+        assertThat(store.add("second", KENOBI, 3, 50).getStatus(), equalTo(JoinResult.Status.REJECTED));
+
+        Thread.sleep(100);
+
+        JoinResult expired = store.poll("first", first.getSessionId());
+        assertThat(expired.getStatus(), equalTo(JoinResult.Status.EXPIRED));
+        assertThat(expired.getFragments(), contains(KENOBI));
+        assertThat(store.add("second", KENOBI, 3, 50).getStatus(), equalTo(JoinResult.Status.PENDING));
+    }
+
+    @Test
+    public void verifySocketStoresJoinFragmentsAcrossInstances() {
+        try(FragmentStoreServer first = new FragmentStoreServer(new InMemoryFragmentStore(1000), 0).start();
+            FragmentStoreServer second = new FragmentStoreServer(new InMemoryFragmentStore(1000), 0).start();
+            FragmentStore instanceA = partitionedStore(first.getPort(), second.getPort());
+            FragmentStore instanceB = partitionedStore(first.getPort(), second.getPort())){
+
+            //Each instance gets some of the fragments of every transmission, and both send them to the same node
+            for(int i = 0; i < 100; i++){
+                String transmissionId = "transmission-" + i;
+                JoinResult pending = instanceA.add(transmissionId, KENOBI, 3, 10000);
+                instanceB.add(transmissionId, SKYWALKER, 3, 10000);
+                JoinResult complete = instanceA.add(transmissionId, SATO, 3, 10000);
+
+                assertThat(complete.getStatus(), equalTo(JoinResult.Status.COMPLETE));
+                assertThat(complete.getSessionId(), equalTo(pending.getSessionId()));
+
+                List<SatelliteMessage> fragments = instanceB.poll(transmissionId, pending.getSessionId()).getFragments();
+                assertThat(fragments.size(), equalTo(3));
+                assertThat(fragments.get(1).getMessage(), equalTo(SKYWALKER.getMessage()));
+                assertThat(fragments.get(1).getDistance(), equalTo(SKYWALKER.getDistance()));
+            }
+        }
+    }
+
+    @Test
+    public void verifySocketStoresSendLargeExpectedCounts() {
+        try(FragmentStoreServer server = new FragmentStoreServer(new InMemoryFragmentStore(10), 0).start();
+            FragmentStore store = new SocketFragmentStore("localhost", server.getPort())){
+
+            //257 expected fragments would wrap to 1 in a single byte and close the session right away
+            assertThat(store.add("large", KENOBI, 257, 10000).getStatus(), equalTo(JoinResult.Status.PENDING));
+        }
+    }
+
+    @Test
+    public void verifySocketStoresSendOversizedMessages() {
+        //More words than a 16 bit count holds, and a word longer than writeUTF can write
+        String[] words = new String[65537];
+        Arrays.fill(words, "este");
+        words[1] = "e".repeat(70000);
+        SatelliteMessage oversized = new SatelliteMessage(words, 100.0, "kenobi");
+
+        try(FragmentStoreServer server = new FragmentStoreServer(new InMemoryFragmentStore(10), 0).start();
+            FragmentStore store = new SocketFragmentStore("localhost", server.getPort())){
+
+            JoinResult first = store.add("oversized", oversized, 2, 10000);
+            assertThat(first.getStatus(), equalTo(JoinResult.Status.PENDING));
+
+            //The next request goes through the same connection, which is still in step with the server
+            JoinResult second = store.add("oversized", SKYWALKER, 2, 10000);
+            assertThat(second.getStatus(), equalTo(JoinResult.Status.COMPLETE));
+            assertThat(second.getFragments(), hasSize(2));
+            assertThat(second.getFragments().get(0).getMessage(), equalTo(words));
+            assertThat(second.getFragments().get(1).getMessage(), equalTo(SKYWALKER.getMessage()));
+
+            //A fragment over the protocol's limits fails before anything is written, the connection keeps working
+            String[] tooMany = new String[(1 << 20) + 1];
+            Arrays.fill(tooMany, "");
+            try{
+                store.add("too-many", new SatelliteMessage(tooMany, 100.0, "kenobi"), 2, 10000);
+                throw new AssertionError("A fragment over the limits was sent");
+            }
+            catch (IllegalArgumentException e){
+                assertThat(e.getMessage(), containsString("words"));
+            }
+            assertThat(store.poll("oversized", first.getSessionId()).getFragments(), hasSize(2));
+        }
+    }
+
+    @Test
+    public void verifyPurgedStoreSessionsAnswerAsExpired() throws Throwable {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        HashedWheelTimer timer = new HashedWheelTimer("store-timer", 10, TimeUnit.MILLISECONDS, 64);
+
+        //The store lost the session by the time it's polled, as when it was closed so long ago that it was purged
+        FragmentStore purgingStore = new FragmentStore() {
+            @Override
+            public JoinResult add(String transmissionId, SatelliteMessage fragment, int expected, long timeoutMillis) {
+                return JoinResult.pending(1L);
+            }
+
+            @Override
+            public JoinResult poll(String transmissionId, long sessionId) {
+                return JoinResult.expired(sessionId, Collections.emptyList());
+            }
+        };
+
+        SplitSatelliteMessagesProcessorService service = new SplitSatelliteMessagesProcessorService(messageSource, new TooManyRequestsResponses("busy"), timer, Optional.of(purgingStore), Optional.empty());
+        try{
+            ReflectionTestUtils.setField(service, "timeout", 5L);
+            ReflectionTestUtils.setField(service, "maxSessions", 10);
+            ReflectionTestUtils.setField(service, "pollMillis", 10L);
+            ReflectionTestUtils.setField(service, "completionPolicyNames", "");
+            service.start();
+
+            ResponseEntity response = service.addSatelliteMessage("purged", KENOBI).get(5, TimeUnit.SECONDS);
+            assertThat(response.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+            assertThat(response.getBody(), equalTo(messageSource.getMessage("INSUFFICIENT_DATA_MESSAGE", null, Locale.US)));
+        }
+        finally {
+            service.shutdown();
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void verifyConsistentHashingOnlyMovesTheRemovedNodeTransmissions() {
+        List<FragmentStore> nodes = Arrays.asList(new InMemoryFragmentStore(1), new InMemoryFragmentStore(1), new InMemoryFragmentStore(1));
+        ConsistentHashFragmentStore three = new ConsistentHashFragmentStore(nodes, Arrays.asList("a:1", "b:2", "c:3"));
+        ConsistentHashFragmentStore two = new ConsistentHashFragmentStore(nodes.subList(0, 2), Arrays.asList("a:1", "b:2"));
+
+        int[] owned = new int[3];
+        for(int i = 0; i < 3000; i++){
+            String transmissionId = "transmission-" + i;
+            FragmentStore owner = three.nodeFor(transmissionId);
+            owned[nodes.indexOf(owner)]++;
+
+            if(owner != nodes.get(2)){
+                assertThat(two.nodeFor(transmissionId), sameInstance(owner));
+            }
+        }
+
+        for(int count : owned){
+            assertThat(count, allOf(greaterThan(700), lessThan(1300)));
+        }
+    }
+
+    private static FragmentStore partitionedStore(int firstPort, int secondPort){
+        return new ConsistentHashFragmentStore(Arrays.asList(new SocketFragmentStore("localhost", firstPort), new SocketFragmentStore("localhost", secondPort)),
+                                               Arrays.asList("localhost:" + firstPort, "localhost:" + secondPort));
+    }
+}
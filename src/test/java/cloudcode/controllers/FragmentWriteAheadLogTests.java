@@ -0,0 +1,160 @@
+package cloudcode.controllers;
+
+import cloudcode.admission.TooManyRequestsResponses;
+import cloudcode.concurrent.HashedWheelTimer;
+import cloudcode.entities.SatelliteMessage;
+import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import cloudcode.store.FragmentWriteAheadLog;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class FragmentWriteAheadLogTests {
+
+    private static final SatelliteMessage KENOBI = new SatelliteMessage(new String[]{"", "este", "es", "un", "mensaje"}, 400.0, "kenobi");
+    private static final SatelliteMessage SKYWALKER = new SatelliteMessage(new String[]{"este", "", "un", "mensaje"}, 300.0, "skywalker");
+    private static final SatelliteMessage SATO = new SatelliteMessage(new String[]{"", "", "es", " ", "mensaje"}, TopSecretTests.testDistance.SATO.getDistance(), "sato");
+
+    @Test
+    public void verifyPendingSessionsAreRecovered() throws Throwable {
+        Path directory = Files.createTempDirectory("wal");
+
+        //Tiny segments, so the records of a session end up spread over several of them
+        FragmentWriteAheadLog log = new FragmentWriteAheadLog(directory, 256, 10, 60000);
+        assertThat(log.recover(), empty());
+        log.appendAdd("first", KENOBI);
+        log.appendAdd("second", KENOBI);
+        log.appendAdd("first", SKYWALKER);
+        log.appendClose("second");
+        log.awaitFlushed(log.appendAdd("third", SKYWALKER));
+        log.close();
+
+        assertThat(segments(directory).size(), greaterThan(1));
+
+        FragmentWriteAheadLog recoveredLog = new FragmentWriteAheadLog(directory, 256, 10, 60000);
+        List<FragmentWriteAheadLog.RecoveredSession> recovered = recoveredLog.recover();
+        recoveredLog.close();
+
+        assertThat(recovered.stream().map(FragmentWriteAheadLog.RecoveredSession::getTransmissionId).collect(Collectors.toList()), contains("first", "third"));
+        assertThat(recovered.get(0).getFragments().stream().map(SatelliteMessage::getName).collect(Collectors.toList()), contains("kenobi", "skywalker"));
+        assertThat(recovered.get(0).getFragments().get(0).getMessage(), equalTo(KENOBI.getMessage()));
+        assertThat(recovered.get(1).getFragments().get(0).getDistance(), equalTo(300.0));
+    }
+
+    @Test
+    public void verifyTornRecordsAreIgnored() throws Throwable {
+        Path directory = Files.createTempDirectory("wal");
+
+        FragmentWriteAheadLog log = new FragmentWriteAheadLog(directory, 4096, 10, 60000);
+        log.recover();
+        log.appendAdd("first", KENOBI);
+        log.awaitFlushed(log.appendAdd("second", SKYWALKER));
+        log.close();
+
+        //Corrupting the last byte of the second record is what a write cut in the middle looks like
+        Path segment = segments(directory).get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        int end = bytes.length;
+        while(bytes[end - 1] == 0){
+            end--;
+        }
+        try(RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")){
+            file.seek(end - 1);
+            file.write(bytes[end - 1] ^ 0xff);
+        }
+
+        FragmentWriteAheadLog recoveredLog = new FragmentWriteAheadLog(directory, 4096, 10, 60000);
+        List<FragmentWriteAheadLog.RecoveredSession> recovered = recoveredLog.recover();
+        recoveredLog.close();
+
+        assertThat(recovered.size(), equalTo(1));
+        assertThat(recovered.get(0).getTransmissionId(), equalTo("first"));
+    }
+
+    @Test
+    public void verifyLongMessagesAreRecoveredWhole() throws Throwable {
+        Path directory = Files.createTempDirectory("wal");
+
+        //More words than a 16 bit count holds, and a word longer than writeUTF can write
+        String[] words = new String[65537];
+        Arrays.fill(words, "un");
+        words[1] = "e".repeat(70000);
+
+        FragmentWriteAheadLog log = new FragmentWriteAheadLog(directory, 1 << 20, 10, 60000);
+        log.recover();
+        long position = log.appendAdd("long", new SatelliteMessage(words, 400.0, "kenobi"));
+        assertThat(position, greaterThan(0L));
+        log.awaitFlushed(position);
+        log.close();
+
+        FragmentWriteAheadLog recoveredLog = new FragmentWriteAheadLog(directory, 1 << 20, 10, 60000);
+        List<FragmentWriteAheadLog.RecoveredSession> recovered = recoveredLog.recover();
+        recoveredLog.close();
+
+        assertThat(recovered.size(), equalTo(1));
+        assertThat(recovered.get(0).getFragments().get(0).getMessage(), equalTo(words));
+    }
+
+    @Test
+    public void verifyFragmentsTheLogCantTakeAreStillJoined() throws Throwable {
+        Path directory = Files.createTempDirectory("wal");
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        HashedWheelTimer timer = new HashedWheelTimer("wal-timer", 10, TimeUnit.MILLISECONDS, 64);
+        FragmentWriteAheadLog log = new FragmentWriteAheadLog(directory, 4096, 10, 60000);
+
+        SplitSatelliteMessagesProcessorService service = new SplitSatelliteMessagesProcessorService(messageSource, new TooManyRequestsResponses("busy"), timer, Optional.empty(), Optional.of(log));
+        try{
+            ReflectionTestUtils.setField(service, "timeout", 5L);
+            ReflectionTestUtils.setField(service, "maxSessions", 10);
+            ReflectionTestUtils.setField(service, "completionPolicyNames", "");
+            service.start();
+
+            //Without its directory the log can't open its first segment, as when the disk is full
+            Files.delete(directory);
+
+            CompletableFuture<ResponseEntity> kenobi = service.addSatelliteMessage("unlogged", KENOBI);
+            CompletableFuture<ResponseEntity> skywalker = service.addSatelliteMessage("unlogged", SKYWALKER);
+            assertThat(kenobi.isDone(), equalTo(false));
+            assertThat(service.getOpenSessions(), equalTo(1));
+
+            ResponseEntity sato = service.addSatelliteMessage("unlogged", SATO).get(5, TimeUnit.SECONDS);
+            assertThat(sato.getStatusCode(), equalTo(HttpStatus.OK));
+            assertThat(kenobi.get(5, TimeUnit.SECONDS).getStatusCode(), equalTo(HttpStatus.OK));
+            assertThat(skywalker.get(5, TimeUnit.SECONDS).getStatusCode(), equalTo(HttpStatus.OK));
+        }
+        finally {
+            service.shutdown();
+            log.close();
+            timer.stop();
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws Throwable {
+        try(Stream<Path> files = Files.list(directory)){
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+}
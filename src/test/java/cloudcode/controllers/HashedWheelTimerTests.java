@@ -0,0 +1,58 @@
+package cloudcode.controllers;
+
+import cloudcode.concurrent.HashedWheelTimer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class HashedWheelTimerTests {
+
+    @Test
+    public void verifyTimeoutNeverExpiresEarly() throws Throwable {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+        CountDownLatch expired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        long[] elapsed = new long[1];
+
+        //The delay is longer than a whole wheel rotation, so the timeout has to wait a few rounds in its bucket
+        timer.newTimeout(() -> {
+            elapsed[0] = System.nanoTime() - start;
+            expired.countDown();
+        }, 250, TimeUnit.MILLISECONDS);
+
+        assertThat(expired.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(elapsed[0], greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(250)));
+        assertThat(timer.getPendingTimeouts(), equalTo(0L));
+        timer.stop();
+    }
+
+    @Test
+    public void verifyCancelledTimeoutsDontRun() throws Throwable {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch lastExpired = new CountDownLatch(1);
+
+        for(int i = 0; i < 1000; i++){
+            HashedWheelTimer.Timeout timeout = timer.newTimeout(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+            assertThat(timeout.cancel(), equalTo(true));
+            assertThat(timeout.cancel(), equalTo(false));
+        }
+        timer.newTimeout(lastExpired::countDown, 100, TimeUnit.MILLISECONDS);
+
+        assertThat(lastExpired.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(runs.get(), equalTo(0));
+        assertThat(timer.getPendingTimeouts(), equalTo(0L));
+        timer.stop();
+    }
+}
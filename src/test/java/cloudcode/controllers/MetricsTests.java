@@ -0,0 +1,47 @@
+package cloudcode.controllers;
+
+import cloudcode.BasicFunctions;
+import cloudcode.metrics.HotPathMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class MetricsTests {
+
+    private final Double[] testDistances = new Double[]{TopSecretTests.testDistance.KENOBI.getDistance(), TopSecretTests.testDistance.SATO.getDistance(),
+                                                        TopSecretTests.testDistance.SKYWALKER.getDistance()};
+
+    @Test
+    public void verifyHotPathsAreTimedOnce() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HotPathMetrics.install(registry);
+
+        BasicFunctions.GetLocation(testDistances);
+        BasicFunctions.GetMessage(List.of(new String[]{"este", "", "un"}, new String[]{"", "es", "un"}));
+
+        //Failed solves are timed as well
+        try {
+            BasicFunctions.GetLocation(new Double[]{100.0, 100.0, 100.0});
+        }
+        catch (Exception ignored) {
+        }
+
+        Timer location = registry.get("topsecret.location").timer();
+        assertThat(location.count(), equalTo(2L));
+        assertThat(location.totalTime(TimeUnit.NANOSECONDS), greaterThan(0.0));
+        assertThat(registry.get("topsecret.message").timer().count(), equalTo(1L));
+        assertThat(registry.get("topsecret.request").tag("endpoint", "topsecret").timer().count(), equalTo(0L));
+    }
+}
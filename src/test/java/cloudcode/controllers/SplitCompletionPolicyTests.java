@@ -0,0 +1,152 @@
+package cloudcode.controllers;
+
+import cloudcode.admission.TooManyRequestsResponses;
+import cloudcode.concurrent.HashedWheelTimer;
+import cloudcode.entities.CompletionPolicyMetrics;
+import cloudcode.entities.Constellation;
+import cloudcode.entities.ResponseObject;
+import cloudcode.entities.SatelliteDefinition;
+import cloudcode.entities.SatelliteMessage;
+import cloudcode.entities.SplitMetrics;
+import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class SplitCompletionPolicyTests {
+
+    //The ship is at the origin, with a fourth satellite any three readings are enough to find it
+    private static final Constellation FOUR_SATELLITES = new Constellation(Arrays.asList(
+            new SatelliteDefinition("kenobi", -500.0, -200.0), new SatelliteDefinition("skywalker", 100.0, -100.0),
+            new SatelliteDefinition("sato", 500.0, 100.0), new SatelliteDefinition("yoda", 0.0, 500.0)), 0.000001);
+
+    private Constellation previous;
+    private HashedWheelTimer timer;
+
+    @Before
+    public void installConstellation() {
+        previous = Constellation.current();
+        Constellation.install(FOUR_SATELLITES);
+        timer = new HashedWheelTimer("policy-timer", 100, TimeUnit.MILLISECONDS, 64);
+    }
+
+    @After
+    public void restoreConstellation() {
+        Constellation.install(previous);
+        timer.stop();
+    }
+
+    @Test
+    public void verifySessionCompletesOnceThePoliciesHold() throws Throwable {
+        SplitSatelliteMessagesProcessorService service = service("message,location");
+
+        CompletableFuture<ResponseEntity> kenobi = service.addSatelliteMessage("transmission", fragment("kenobi", -500.0, -200.0, "este", "", "un", ""));
+        CompletableFuture<ResponseEntity> skywalker = service.addSatelliteMessage("transmission", fragment("skywalker", 100.0, -100.0, "", "es", "", ""));
+        assertThat(kenobi.isDone(), equalTo(false));
+
+        //The third reading fixes the position and resolves every word, so nobody waits for yoda
+        CompletableFuture<ResponseEntity> sato = service.addSatelliteMessage("transmission", fragment("sato", 500.0, 100.0, "", "", "", "mensaje"));
+        ResponseEntity response = sato.get(1, TimeUnit.SECONDS);
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+
+        ResponseObject body = (ResponseObject) response.getBody();
+        assertThat(body.getMessage(), equalTo(new String[]{"este", "es", "un", "mensaje"}));
+        assertThat(body.getPosition().getX(), closeTo(0.0, 0.0001));
+        assertThat(body.getPosition().getY(), closeTo(0.0, 0.0001));
+        assertThat(kenobi.get(1, TimeUnit.SECONDS), sameInstance(response));
+        assertThat(skywalker.get(1, TimeUnit.SECONDS), sameInstance(response));
+        assertThat(service.getOpenSessions(), equalTo(0));
+
+        //The late fragment gets the same answer instead of opening a new session
+        CompletableFuture<ResponseEntity> yoda = service.addSatelliteMessage("transmission", fragment("yoda", 0.0, 500.0, "", "", "", ""));
+        assertThat(yoda.get(1, TimeUnit.SECONDS), sameInstance(response));
+        assertThat(service.getOpenSessions(), equalTo(0));
+
+        SplitMetrics metrics = service.getMetrics();
+        assertThat(metrics.getCompletedEarly(), equalTo(1L));
+        assertThat(metrics.getCompleted(), equalTo(0L));
+        assertThat(metrics.getLateFragments(), equalTo(1L));
+        for(CompletionPolicyMetrics policy : metrics.getPolicies()){
+            assertThat(policy.getHitRate(), equalTo(1.0));
+        }
+    }
+
+    @Test
+    public void verifySessionWaitsWhileAPolicyDoesNotHold() throws Throwable {
+        SplitSatelliteMessagesProcessorService service = service("message");
+
+        service.addSatelliteMessage("transmission", fragment("kenobi", -500.0, -200.0, "este", "", "", ""));
+        service.addSatelliteMessage("transmission", fragment("skywalker", 100.0, -100.0, "", "es", "", ""));
+        CompletableFuture<ResponseEntity> sato = service.addSatelliteMessage("transmission", fragment("sato", 500.0, 100.0, "", "", "", "mensaje"));
+        assertThat(sato.isDone(), equalTo(false));
+
+        ResponseEntity response = service.addSatelliteMessage("transmission", fragment("yoda", 0.0, 500.0, "", "", "un", "")).get(1, TimeUnit.SECONDS);
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(sato.get(1, TimeUnit.SECONDS), sameInstance(response));
+
+        SplitMetrics metrics = service.getMetrics();
+        assertThat(metrics.getCompleted(), equalTo(1L));
+        assertThat(metrics.getCompletedEarly(), equalTo(0L));
+        assertThat(metrics.getPolicies().get(0).getName(), equalTo("message"));
+        assertThat(metrics.getPolicies().get(0).getEvaluations(), equalTo(1L));
+        assertThat(metrics.getPolicies().get(0).getHits(), equalTo(0L));
+    }
+
+    @Test
+    public void verifyThreeSatelliteSessionsNeverCompleteEarly() throws Throwable {
+        //Two circles meet at two points, so with the default constellation the policies are never asked: every session waits for the third satellite
+        Constellation.install(previous);
+        SplitSatelliteMessagesProcessorService service = service("message,location");
+
+        CompletableFuture<ResponseEntity> kenobi = service.addSatelliteMessage("transmission", fragment("kenobi", -500.0, -200.0, "este", "es", "un", "mensaje"));
+        CompletableFuture<ResponseEntity> skywalker = service.addSatelliteMessage("transmission", fragment("skywalker", 100.0, -100.0, "este", "es", "un", "mensaje"));
+        assertThat(kenobi.isDone(), equalTo(false));
+        assertThat(skywalker.isDone(), equalTo(false));
+
+        ResponseEntity response = service.addSatelliteMessage("transmission", fragment("sato", 500.0, 100.0, "", "", "", "")).get(1, TimeUnit.SECONDS);
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(kenobi.get(1, TimeUnit.SECONDS), sameInstance(response));
+
+        SplitMetrics metrics = service.getMetrics();
+        assertThat(metrics.getCompleted(), equalTo(1L));
+        assertThat(metrics.getCompletedEarly(), equalTo(0L));
+        for(CompletionPolicyMetrics policy : metrics.getPolicies()){
+            assertThat(policy.getEvaluations(), equalTo(0L));
+        }
+    }
+
+    private SplitSatelliteMessagesProcessorService service(String policies) {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+
+        SplitSatelliteMessagesProcessorService service = new SplitSatelliteMessagesProcessorService(messageSource, new TooManyRequestsResponses("busy"), timer, Optional.empty(), Optional.empty());
+        ReflectionTestUtils.setField(service, "timeout", 5L);
+        ReflectionTestUtils.setField(service, "maxSessions", 100);
+        ReflectionTestUtils.setField(service, "completionPolicyNames", policies);
+        ReflectionTestUtils.setField(service, "maxResidual", 0.000001);
+        service.start();
+        return service;
+    }
+
+    private static SatelliteMessage fragment(String name, double x, double y, String... words) {
+        return new SatelliteMessage(words, Math.hypot(x, y), name);
+    }
+}
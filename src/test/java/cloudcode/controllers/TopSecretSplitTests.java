@@ -1,7 +1,12 @@
 package cloudcode.controllers;
 
 import cloudcode.BasicFunctions;
+import cloudcode.entities.Constellation;
 import cloudcode.entities.ResponseObject;
+import cloudcode.entities.SatelliteDefinition;
+import cloudcode.entities.SatelliteMessage;
+import cloudcode.services.SplitToken;
+import cloudcode.services.SplitTokenCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
 import org.apache.http.client.utils.URIBuilder;
@@ -1008,4 +1013,236 @@ public class TopSecretSplitTests {
         assertThat(resultSkywalker.body(), equalTo(messageSource.getMessage("INSUFFICIENT_DATA_MESSAGE", null, Locale.US)));
         assertThat(resultSato.body(), equalTo(messageSource.getMessage("INSUFFICIENT_DATA_MESSAGE", null, Locale.US)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void verifyConcurrentTransmissions() throws Throwable {
+        Map<String, Object> messageKenobi = new HashMap<>();
+        messageKenobi.put("message", testMessagesArray.KENOBI.getArray());
+        messageKenobi.put("distance", testDistance.KENOBI.getDistance());
+
+        Map<String, Object> messageSato = new HashMap<>();
+        messageSato.put("message", testMessagesArray.SATO.getArray());
+        messageSato.put("distance", testDistance.SATO.getDistance());
+
+        Map<String, Object> messageSkywalker = new HashMap<>();
+        messageSkywalker.put("message", testMessagesArray.SKYWALKER.getArray());
+        messageSkywalker.put("distance", testDistance.SKYWALKER.getDistance());
+
+        String requestBodyKenobi = objectMapper.writeValueAsString(messageKenobi);
+        String requestBodySato = objectMapper.writeValueAsString(messageSato);
+        String requestBodySkywalker = objectMapper.writeValueAsString(messageSkywalker);
+
+        //Fragments of both transmissions are interleaved, one identified by the path and the other one by the header
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for(String satellite : new String[]{"kenobi", "sato", "skywalker"}){
+            String body = satellite.equals("kenobi") ? requestBodyKenobi : satellite.equals("sato") ? requestBodySato : requestBodySkywalker;
+
+            HttpRequest requestByPath = HttpRequest.newBuilder().uri(URI.create(functionUrl + "transmission-1/" + satellite)).
+                    method(HttpMethod.POST.asString(), HttpRequest.BodyPublishers.ofString(body)).header("Content-Type", MediaType.APPLICATION_JSON_VALUE).build();
+            HttpRequest requestByHeader = HttpRequest.newBuilder().uri(URI.create(functionUrl + satellite)).
+                    method(HttpMethod.POST.asString(), HttpRequest.BodyPublishers.ofString(body)).header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                    .header(TopSecretSplitController.TRANSMISSION_ID_HEADER, "transmission-2").build();
+
+            responses.add(client.sendAsync(requestByPath, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+            responses.add(client.sendAsync(requestByHeader, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+        }
+
+        ResponseObject correctResult = new ResponseObject(BasicFunctions.GetLocation(testDistances), BasicFunctions.GetMessage(messageStringList));
+
+        for(CompletableFuture<HttpResponse<String>> response : responses){
+            HttpResponse<String> result = response.get();
+            assertThat(result.statusCode(), equalTo(HttpURLConnection.HTTP_OK));
+            assertThat(result.body(), equalTo(objectMapper.writeValueAsString(correctResult)));
+        }
+    }
+
+    @Test
+    public void verifySessionEstimate() throws Throwable {
+        String transmissionId = "estimate-" + UUID.randomUUID();
+        URI sessionUri = URI.create(BASE_URL + "/topsecret_split_sessions/" + transmissionId);
+
+        Map<String, Object> messageKenobi = new HashMap<>();
+        messageKenobi.put("message", testMessagesArray.KENOBI.getArray());
+        messageKenobi.put("distance", testDistance.KENOBI.getDistance());
+
+        Map<String, Object> messageSato = new HashMap<>();
+        messageSato.put("message", testMessagesArray.SATO.getArray());
+        messageSato.put("distance", testDistance.SATO.getDistance());
+
+        Map<String, Object> messageSkywalker = new HashMap<>();
+        messageSkywalker.put("message", testMessagesArray.SKYWALKER.getArray());
+        messageSkywalker.put("distance", testDistance.SKYWALKER.getDistance());
+
+        HttpResponse<String> notFound = client.send(HttpRequest.newBuilder().uri(sessionUri).GET().build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertThat(notFound.statusCode(), equalTo(HttpURLConnection.HTTP_NOT_FOUND));
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for(String satellite : new String[]{"kenobi", "sato"}){
+            Map<String, Object> message = satellite.equals("kenobi") ? messageKenobi : messageSato;
+            HttpRequest request = HttpRequest.newBuilder().uri(URI.create(functionUrl + transmissionId + "/" + satellite)).
+                    method(HttpMethod.POST.asString(), HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(message))).header("Content-Type", MediaType.APPLICATION_JSON_VALUE).build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+        }
+
+        //Both fragments are pending, the circles of Kenobi and Sato already meet at two candidates and one of them is the position
+        Map<?, ?> estimate = null;
+        for(int attempt = 0; attempt < 50; attempt++){
+            HttpResponse<String> result = client.send(HttpRequest.newBuilder().uri(sessionUri).GET().build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if(result.statusCode() == HttpURLConnection.HTTP_OK){
+                estimate = objectMapper.readValue(result.body(), Map.class);
+                if(((List<?>) estimate.get("satellites")).size() == 2){
+                    break;
+                }
+            }
+            Thread.sleep(20);
+        }
+
+        assertThat(estimate, notNullValue());
+        assertThat((List<String>) estimate.get("satellites"), containsInAnyOrder("kenobi", "sato"));
+        assertThat((List<String>) estimate.get("message"), contains("este", "es", "un", "mensaje"));
+
+        List<Map<String, Double>> candidates = (List<Map<String, Double>>) estimate.get("candidates");
+        assertThat(candidates.size(), equalTo(2));
+        assertThat(candidates.stream().anyMatch(candidate -> Math.abs(candidate.get("x") - correctCalculatedLocationX) < 0.000001
+                && Math.abs(candidate.get("y") - correctCalculatedLocationY) < 0.000001), equalTo(true));
+
+        HttpRequest requestSkywalker = HttpRequest.newBuilder().uri(URI.create(functionUrl + transmissionId + "/skywalker")).
+                method(HttpMethod.POST.asString(), HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(messageSkywalker))).header("Content-Type", MediaType.APPLICATION_JSON_VALUE).build();
+        responses.add(client.sendAsync(requestSkywalker, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+
+        ResponseObject correctResult = new ResponseObject(BasicFunctions.GetLocation(testDistances), BasicFunctions.GetMessage(messageStringList));
+
+        for(CompletableFuture<HttpResponse<String>> response : responses){
+            HttpResponse<String> result = response.get();
+            assertThat(result.statusCode(), equalTo(HttpURLConnection.HTTP_OK));
+            assertThat(result.body(), equalTo(objectMapper.writeValueAsString(correctResult)));
+        }
+
+        notFound = client.send(HttpRequest.newBuilder().uri(sessionUri).GET().build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertThat(notFound.statusCode(), equalTo(HttpURLConnection.HTTP_NOT_FOUND));
+    }
+
+    @Test
+    public void verifySessionsTransmissionId() throws Throwable {
+        //"sessions" is a transmission ID like any other, the GET fragments of it aren't taken for the session estimate
+        CompletableFuture<HttpResponse<String>> responseKenobi = client.sendAsync(HttpRequest.newBuilder()
+                .uri(new URIBuilder(functionUrl + "sessions/kenobi").addParameter("distance", testDistance.KENOBI.getDistance().toString())
+                        .addParameter("message", String.join(",", testMessagesArray.KENOBI.getArray())).build()).GET().build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        HttpResponse<String> estimate = null;
+        for(int attempt = 0; attempt < 50; attempt++){
+            estimate = client.send(HttpRequest.newBuilder().uri(URI.create(BASE_URL + "/topsecret_split_sessions/sessions")).GET().build(),
+                                   HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if(estimate.statusCode() == HttpURLConnection.HTTP_OK){
+                break;
+            }
+            Thread.sleep(20);
+        }
+        assertThat(estimate.statusCode(), equalTo(HttpURLConnection.HTTP_OK));
+        assertThat(estimate.body(), containsString("kenobi"));
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(List.of(responseKenobi));
+        for(testDistance satellite : new testDistance[]{testDistance.SATO, testDistance.SKYWALKER}){
+            Map<String, Object> message = new HashMap<>();
+            message.put("message", testMessagesArray.valueOf(satellite.name()).getArray());
+            message.put("distance", satellite.getDistance());
+            responses.add(client.sendAsync(HttpRequest.newBuilder().uri(URI.create(functionUrl + "sessions/" + satellite.name().toLowerCase()))
+                    .method(HttpMethod.POST.asString(), HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(message)))
+                    .header("Content-Type", MediaType.APPLICATION_JSON_VALUE).build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+        }
+
+        for(CompletableFuture<HttpResponse<String>> response : responses){
+            assertThat(response.get().statusCode(), equalTo(HttpURLConnection.HTTP_OK));
+        }
+    }
+
+    @Test
+    public void verifyStatelessSplitToken() throws Throwable {
+        Map<String, Object> messageKenobi = new HashMap<>();
+        messageKenobi.put("message", testMessagesArray.KENOBI.getArray());
+        messageKenobi.put("distance", testDistance.KENOBI.getDistance());
+
+        Map<String, Object> messageSato = new HashMap<>();
+        messageSato.put("message", testMessagesArray.SATO.getArray());
+        messageSato.put("distance", testDistance.SATO.getDistance());
+
+        Map<String, Object> messageSkywalker = new HashMap<>();
+        messageSkywalker.put("message", testMessagesArray.SKYWALKER.getArray());
+        messageSkywalker.put("distance", testDistance.SKYWALKER.getDistance());
+
+        //Every fragment carries the token the previous one got back, nothing waits on the server
+        HttpResponse<String> resultKenobi = client.send(HttpRequest.newBuilder().uri(URI.create(functionUrl + "kenobi"))
+                .method(HttpMethod.POST.asString(), HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(messageKenobi)))
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE).header("X-Split-Token", "new").build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertThat(resultKenobi.statusCode(), equalTo(HttpURLConnection.HTTP_ACCEPTED));
+        String token = resultKenobi.headers().firstValue("X-Split-Token").orElseThrow();
+        assertThat(resultKenobi.body(), equalTo(objectMapper.writeValueAsString(Map.of("token", token))));
+
+        HttpResponse<String> resultSato = client.send(HttpRequest.newBuilder().uri(URI.create(functionUrl + "sato"))
+                .method(HttpMethod.POST.asString(), HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(messageSato)))
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE).header("X-Split-Token", token).build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertThat(resultSato.statusCode(), equalTo(HttpURLConnection.HTTP_ACCEPTED));
+        token = resultSato.headers().firstValue("X-Split-Token").orElseThrow();
+
+        //A token that was tampered with isn't accepted
+        String tamperedToken = token.substring(0, 20) + (token.charAt(20) == 'A' ? 'B' : 'A') + token.substring(21);
+        HttpResponse<String> resultTampered = client.send(HttpRequest.newBuilder().uri(URI.create(functionUrl + "skywalker"))
+                .method(HttpMethod.POST.asString(), HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(messageSkywalker)))
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE).header("X-Split-Token", tamperedToken).build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        assertThat(resultTampered.statusCode(), equalTo(HttpURLConnection.HTTP_BAD_REQUEST));
+        assertThat(resultTampered.body(), equalTo(messageSource.getMessage("INVALID_SPLIT_TOKEN_MESSAGE", null, Locale.US)));
+
+        HttpResponse<String> resultSkywalker = client.send(HttpRequest.newBuilder().uri(URI.create(functionUrl + "skywalker"))
+                .method(HttpMethod.POST.asString(), HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(messageSkywalker)))
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE).header("X-Split-Token", token).build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        ResponseObject correctResult = new ResponseObject(BasicFunctions.GetLocation(testDistances), BasicFunctions.GetMessage(messageStringList));
+
+        assertThat(resultSkywalker.statusCode(), equalTo(HttpURLConnection.HTTP_OK));
+        assertThat(resultSkywalker.body(), equalTo(objectMapper.writeValueAsString(correctResult)));
+    }
+
+    @Test
+    public void verifySplitTokenCodecLimits() throws Throwable {
+        List<SatelliteDefinition> satellites = new ArrayList<>();
+        for(int i = 0; i < 300; i++){
+            satellites.add(new SatelliteDefinition(String.format("satellite%03d", i), i * 10.0, (i % 7) * 10.0));
+        }
+        Constellation constellation = new Constellation(satellites, 0.000001);
+        Constellation previous = Constellation.current();
+        SplitTokenCodec codec = new SplitTokenCodec(new byte[32]);
+
+        try{
+            Constellation.install(constellation);
+
+            //IDs and counts above 255 and words of any length round trip
+            List<SatelliteMessage> fragments = new ArrayList<>();
+            for(int id = 250; id < 300; id++){
+                fragments.add(new SatelliteMessage(new String[]{"é", null, "mensaje"}, (double) id, constellation.getName(id)));
+            }
+            SplitToken decoded = codec.decode(codec.encode(new SplitToken(1L, constellation.getFingerprint(), fragments)), constellation);
+
+            assertThat(decoded.getSatelliteMessages().size(), equalTo(50));
+            assertThat(decoded.getSatelliteMessages().get(49).getSatelliteId(), equalTo(299));
+            assertThat(decoded.getSatelliteMessages().get(49).getMessage(), equalTo(new String[]{"é", null, "mensaje"}));
+
+            //A word too large for the header the token travels in is rejected instead of wrapping or failing to encode
+            String largeWord = "a".repeat(70000);
+            List<SatelliteMessage> largeFragment = List.of(new SatelliteMessage(new String[]{largeWord}, 1.0, constellation.getName(0)));
+            try{
+                codec.encode(new SplitToken(1L, constellation.getFingerprint(), largeFragment));
+                throw new AssertionError("The oversized token was encoded");
+            }
+            catch (IllegalArgumentException e){
+                assertThat(e.getMessage(), containsString(String.valueOf(SplitTokenCodec.MAX_TOKEN_BYTES)));
+            }
+        }
+        finally {
+            Constellation.install(previous);
+        }
+    }
+}
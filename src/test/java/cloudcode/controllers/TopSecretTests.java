@@ -307,4 +307,93 @@ public class TopSecretTests {
         assertThat(response.statusCode(), equalTo(HttpURLConnection.HTTP_NOT_FOUND));
         assertThat(response.body(), equalTo(messageSource.getMessage("INSUFFICIENT_DATA_MESSAGE", null, Locale.US)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void verifyBatchJson() throws Throwable {
+        List<Map<String, Object>> messageList = new ArrayList<>();
+
+        Map<String, Object> messageKenobi = new HashMap<>();
+        messageKenobi.put("name", "kenobi");
+        messageKenobi.put("message", testMessagesArray.KENOBI.getArray());
+        messageKenobi.put("distance", testDistance.KENOBI.getDistance());
+        messageList.add(messageKenobi);
+
+        Map<String, Object> messageSkywalker = new HashMap<>();
+        messageSkywalker.put("name", "skywalker");
+        messageSkywalker.put("message", testMessagesArray.SKYWALKER.getArray());
+        messageSkywalker.put("distance", testDistance.SKYWALKER.getDistance());
+        messageList.add(messageSkywalker);
+
+        Map<String, Object> messageSato = new HashMap<>();
+        messageSato.put("name", "sato");
+        messageSato.put("message", testMessagesArray.SATO.getArray());
+        messageSato.put("distance", testDistance.SATO.getDistance());
+        messageList.add(messageSato);
+
+        //A valid transmission, one without enough readings and one that can't be solved, the results keep the order
+        List<Map<String, Object>> invalidMessageList = new ArrayList<>(messageList.subList(0, 2));
+        Map<String, Object> messageSatoInvalid = new HashMap<>(messageSato);
+        messageSatoInvalid.put("distance", testDistanceInvalid.SATO.getDistance());
+        List<Map<String, Object>> unsolvableMessageList = new ArrayList<>(messageList.subList(0, 2));
+        unsolvableMessageList.add(messageSatoInvalid);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        String requestBody = objectMapper.writeValueAsString(List.of(Map.of("satellites", messageList), Map.of("satellites", invalidMessageList),
+                                                                      Map.of("satellites", unsolvableMessageList), Map.of("satellites", messageList)));
+
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(functionUrl + "batch"))
+                .method(HttpMethod.POST.asString(), HttpRequest.BodyPublishers.ofString(requestBody))
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE).build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        ResponseObject correctResult = new ResponseObject(BasicFunctions.GetLocation(testDistances), BasicFunctions.GetMessage(messageStringList));
+        String solved = "{\"status\":200," + objectMapper.writeValueAsString(correctResult).substring(1);
+        String invalid = "{\"status\":404,\"error\":" + objectMapper.writeValueAsString(messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US)) + "}";
+        String unsolvable = "{\"status\":404,\"error\":" + objectMapper.writeValueAsString(messageSource.getMessage("INSUFFICIENT_DATA_MESSAGE", null, Locale.US)) + "}";
+
+        assertThat(response.statusCode(), equalTo(HttpURLConnection.HTTP_OK));
+        assertThat(response.body(), equalTo("[" + solved + "," + invalid + "," + unsolvable + "," + solved + "]"));
+    }
+
+    @Test
+    public void verifyStreamJson() throws Throwable {
+        List<Map<String, Object>> messageList = new ArrayList<>();
+
+        Map<String, Object> messageKenobi = new HashMap<>();
+        messageKenobi.put("name", "kenobi");
+        messageKenobi.put("message", testMessagesArray.KENOBI.getArray());
+        messageKenobi.put("distance", testDistance.KENOBI.getDistance());
+        messageList.add(messageKenobi);
+
+        Map<String, Object> messageSkywalker = new HashMap<>();
+        messageSkywalker.put("name", "skywalker");
+        messageSkywalker.put("message", testMessagesArray.SKYWALKER.getArray());
+        messageSkywalker.put("distance", testDistance.SKYWALKER.getDistance());
+        messageList.add(messageSkywalker);
+
+        Map<String, Object> messageSato = new HashMap<>();
+        messageSato.put("name", "sato");
+        messageSato.put("message", testMessagesArray.SATO.getArray());
+        messageSato.put("distance", testDistance.SATO.getDistance());
+        messageList.add(messageSato);
+
+        //A line per transmission, blank lines don't get a result
+        ObjectMapper objectMapper = new ObjectMapper();
+        String transmission = objectMapper.writeValueAsString(Map.of("satellites", messageList));
+        String requestBody = transmission + "\n\n{\"satellites\":\n" + transmission + "\r\n";
+
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(functionUrl + "stream"))
+                .method(HttpMethod.POST.asString(), HttpRequest.BodyPublishers.ofString(requestBody))
+                .header("Content-Type", MediaType.APPLICATION_NDJSON_VALUE).build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        ResponseObject correctResult = new ResponseObject(BasicFunctions.GetLocation(testDistances), BasicFunctions.GetMessage(messageStringList));
+        String solved = "{\"status\":200," + objectMapper.writeValueAsString(correctResult).substring(1);
+        String invalid = "{\"status\":404,\"error\":" + objectMapper.writeValueAsString(messageSource.getMessage("INVALID_JSON_MESSAGE", null, Locale.US)) + "}";
+
+        assertThat(response.statusCode(), equalTo(HttpURLConnection.HTTP_OK));
+        assertThat(response.body(), equalTo(solved + "\n" + invalid + "\n" + solved + "\n"));
+    }
+}
@@ -0,0 +1,93 @@
+package cloudcode.controllers;
+
+import cloudcode.services.SplitSatelliteMessagesProcessorService;
+import cloudcode.warmup.WarmUpRunner;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "warmup.iterations=5")
+//Its own context, so no other test's traffic is counted in the meters it checks
+public class WarmUpTests {
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
+    @Autowired
+    private SplitSatelliteMessagesProcessorService splitSatelliteMessagesProcessorService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    public void verifyReadyOnceWarmedUp() throws Throwable {
+        HttpResponse<String> readiness = get("/actuator/health/readiness");
+
+        assertThat(readiness.statusCode(), equalTo(HttpURLConnection.HTTP_OK));
+        assertThat(readiness.body(), containsString("\"UP\""));
+    }
+
+    @Test
+    public void verifyWarmUpLeavesNoPendingSessions() throws Throwable {
+        //Every satellite of a warm-up transmission sends its fragment, so its session is closed by the time the instance is ready
+        HttpResponse<String> session = get("/topsecret_split_sessions/warmup-0");
+
+        assertThat(session.statusCode(), equalTo(HttpURLConnection.HTTP_NOT_FOUND));
+    }
+
+    @Test
+    public void verifyWarmUpLeavesNoMetrics() throws Throwable {
+        assertThat(registry.get("topsecret.location").timer().count(), equalTo(0L));
+        assertThat(registry.get("topsecret.request").tag("endpoint", "topsecret_split").timer().count(), equalTo(0L));
+        assertThat(registry.get("topsecret.split.sessions").tag("outcome", "completed").functionCounter().count(), equalTo(0.0));
+        assertThat(registry.get("topsecret.admission.admitted").tag("gate", "topsecret").functionCounter().count(), equalTo(0.0));
+    }
+
+    @Test
+    public void verifyReadyAfterAFailedWarmUp() {
+        //The port makes the URIs of the warm-up requests invalid, which isn't an IOException
+        WarmUpRunner runner = new WarmUpRunner(applicationContext, new MockEnvironment().withProperty("local.server.port", "no port"),
+                                               splitSatelliteMessagesProcessorService, List.of());
+        ReflectionTestUtils.setField(runner, "enabled", true);
+        ReflectionTestUtils.setField(runner, "iterations", 1);
+        ReflectionTestUtils.setField(runner, "timeoutSeconds", 1L);
+
+        runner.run(null);
+
+        assertThat(applicationAvailability.getReadinessState(), equalTo(ReadinessState.ACCEPTING_TRAFFIC));
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder().uri(URI.create("http://localhost:" + port + path)).GET().build(),
+                           HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+}